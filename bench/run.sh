@@ -0,0 +1,28 @@
+#!/bin/sh
+# Build and run the benchmarks, see BenchmarkMain:
+#
+#   LOGIST=<logist jar> JMH=<directory of the JMH jars> bench/run.sh [regular expression]
+#
+# JMH holds jmh-core, jmh-generator-annprocess and their dependencies jopt-simple and
+# commons-math3, e.g. the jars of JMH 1.37 from Maven Central. The classes of src and
+# bench are compiled together into bench/classes, the annotation processor generating
+# the benchmark classes next to them, and BenchmarkMain is run with the optional regular
+# expression, e.g. "SolutionBenchmark.getNeighbours".
+set -e
+
+if [ -z "$LOGIST" ] || [ -z "$JMH" ]; then
+	echo "Usage: LOGIST=<logist jar> JMH=<directory of the JMH jars> $0 [regular expression]" >&2
+	exit 1
+fi
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+OUT="$ROOT/bench/classes"
+JARS=$(ls "$JMH"/*.jar | tr '\n' ':')
+CLASSPATH="$LOGIST:$JARS"
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+javac -encoding ISO-8859-1 -nowarn -cp "$CLASSPATH" -processorpath "$JARS" -d "$OUT" \
+	$(find "$ROOT/src" "$ROOT/bench" -name '*.java')
+
+java -cp "$OUT:$CLASSPATH" template.BenchmarkMain "$@"
@@ -0,0 +1,25 @@
+package template;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Run the benchmarks with the gc profiler, which reports the allocation rate of each of
+// them next to its time per operation. The classes of src and bench must be compiled
+// together with the JMH annotation processor, and the logist library on the class path,
+// which bench/run.sh does before running them. An optional argument restricts the
+// benchmarks run with a regular expression, e.g. "SolutionBenchmark.getNeighbours".
+public class BenchmarkMain {
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : "template\\..*Benchmark";
+		
+		Options options = new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.build();
+		
+		new Runner(options).run();
+	}
+}
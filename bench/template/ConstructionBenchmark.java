@@ -0,0 +1,78 @@
+package template;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Benchmark of the construction heuristics on the time to reach a target cost: each
+// run builds the initial solution and searches from it until the best cost is below
+// the target. The target is the cost reached by REFERENCE_ITER iterations from a random
+// start, plus TARGET_GAP, so it is the same for every heuristic on a given instance.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ConstructionBenchmark {
+	private static final int REFERENCE_ITER = 20000;
+	private static final double TARGET_GAP = 0.05;
+	
+	@Param({"50"})
+	public int cities;
+	
+	@Param({"100", "300"})
+	public int tasks;
+	
+	@Param({"5", "20"})
+	public int vehicles;
+	
+	@Param({"0.25", "0.75"})
+	public double tightness;
+	
+	@Param({"random", "cheapest", "regret-2", "regret-3"})
+	public String construction;
+	
+	private Instance instance;
+	private ConstructionHeuristic heuristic;
+	private double target;
+	
+	@Setup
+	public void setup() {
+		this.instance = SyntheticInstance.create(cities, tasks, vehicles, tightness, 1);
+		this.heuristic = ConstructionHeuristic.forName(construction);
+		
+		StochasticLocalSearch reference = new StochasticLocalSearch(
+				new RandomConstruction().build(instance, new SplittableRandom(2)),
+				new SplittableRandom(3), null, 0.5, 100, 2);
+		for(int i = 0; i < REFERENCE_ITER; i++) {
+			reference.step();
+		}
+		this.target = (1 + TARGET_GAP)*reference.getBestCost();
+	}
+	
+	// Return the number of iterations needed to reach the target
+	@Benchmark
+	public int timeToTarget() {
+		Solution initSolution = heuristic.build(instance, new SplittableRandom(2));
+		StochasticLocalSearch sls = new StochasticLocalSearch(initSolution,
+				new SplittableRandom(3), null, 0.5, 100, 2);
+		
+		while(sls.getBestCost() > target && sls.getIter() < REFERENCE_ITER) {
+			sls.step();
+		}
+		
+		return sls.getIter();
+	}
+}
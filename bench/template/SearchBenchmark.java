@@ -0,0 +1,66 @@
+package template;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Benchmark of whole SLS runs with a fixed number of iterations, from the same random
+// initial solution and seed each time so that every run performs the same iterations.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+	@Param({"50"})
+	public int cities;
+	
+	@Param({"100", "300"})
+	public int tasks;
+	
+	@Param({"5", "20"})
+	public int vehicles;
+	
+	@Param({"0.25", "0.75"})
+	public double tightness;
+	
+	@Param({"1000"})
+	public int iterations;
+	
+	private Solution initSolution;
+	private StochasticLocalSearch sls;
+	
+	@Setup(Level.Trial)
+	public void createInstance() {
+		Instance instance = SyntheticInstance.create(cities, tasks, vehicles, tightness, 1);
+		this.initSolution = SyntheticInstance.randomSolution(instance, new SplittableRandom(2));
+	}
+	
+	@Setup(Level.Invocation)
+	public void createSearch() {
+		this.sls = new StochasticLocalSearch(initSolution, new SplittableRandom(3), null,
+				0.5, 100, 2);
+	}
+	
+	@Benchmark
+	public double computeSLS() {
+		for(int i = 0; i < iterations; i++) {
+			sls.step();
+		}
+		
+		return sls.getBestCost();
+	}
+}
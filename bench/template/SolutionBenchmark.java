@@ -0,0 +1,145 @@
+package template;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Benchmarks of the hot methods of the solver: neighbourhood generation, insertion
+// enumeration, capacity checks and cost evaluation. Every benchmark works on the same
+// solution, obtained by a few hundred SLS iterations from a random one, so the routes
+// look like the ones met during a search.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolutionBenchmark {
+	private static final int WARMUP_STEPS = 500;
+	
+	@Param({"50"})
+	public int cities;
+	
+	@Param({"100", "300"})
+	public int tasks;
+	
+	@Param({"5", "20"})
+	public int vehicles;
+	
+	@Param({"0.25", "0.75"})
+	public double tightness;
+	
+	private Solution solution;
+	private TaskList route; // Longest route of the solution
+	private int task; // Task inserted in route
+	private SplittableRandom random;
+	private MoveList moves;
+	private NeighbourhoodEvaluator evaluator;
+	
+	@Setup
+	public void setup() {
+		Instance instance = SyntheticInstance.create(cities, tasks, vehicles, tightness, 1);
+		SplittableRandom random = new SplittableRandom(2);
+		
+		StochasticLocalSearch sls = new StochasticLocalSearch(
+				SyntheticInstance.randomSolution(instance, random), random, null, 0.5, 100, 2);
+		for(int i = 0; i < WARMUP_STEPS; i++) {
+			sls.step();
+		}
+		// Fresh solution owning all its lists, as the current solution of a search
+		this.solution = sls.getBest().deepCopy();
+		
+		for(int v = 0; v < instance.numVehicles; v++) {
+			TaskList taskList = solution.getTaskList(v);
+			if(route == null || taskList.size() > route.size())
+				route = taskList;
+		}
+		this.task = Instance.taskOf(route.action(0));
+		
+		this.random = new SplittableRandom(3);
+		this.moves = new MoveList();
+		this.evaluator = new NeighbourhoodEvaluator(null);
+	}
+	
+	// Fill a move list with the whole neighbourhood
+	@Benchmark
+	public int getNeighbours() {
+		solution.getNeighbours(random, moves);
+		return moves.size();
+	}
+	
+	// Find the best moves of the whole neighbourhood without materializing them
+	@Benchmark
+	public int evaluateNeighbours() {
+		evaluator.evaluate(solution, random);
+		return evaluator.getBestCount();
+	}
+	
+	// Enumerate every feasible insertion of a task in the longest route, with its cost
+	@Benchmark
+	public double getAllInsertions() {
+		double sum = 0;
+		
+		for(int i = 0; i < route.size() + 1; i++) {
+			int last = route.lastDeliverOrder(task, i);
+			for(int j = i + 1; j <= last; j++) {
+				if(route.canDeliverAt(task, i, j))
+					sum += route.insertionDelta(task, i, j);
+			}
+		}
+		
+		return sum;
+	}
+	
+	// Check one random insertion against the capacity in O(1)
+	@Benchmark
+	public boolean canInsert() {
+		int i = random.nextInt(route.size() + 1);
+		int j = i + 1 + random.nextInt(route.size() + 1 - i);
+		
+		return route.canInsert(task, i, j);
+	}
+	
+	// Rescan the whole longest route against the capacity
+	@Benchmark
+	public boolean checkWeights() {
+		return route.checkWeights();
+	}
+	
+	// Incremental cost
+	@Benchmark
+	public double getCost() {
+		return solution.getCost();
+	}
+	
+	// Cost walking every action of every vehicle
+	@Benchmark
+	public double computeCost() {
+		return solution.computeCost();
+	}
+	
+	// Copy sharing the lists, done each time the best solution improves. It only copies
+	// the arrays of the vehicles, the lists being copied later by the first solution
+	// modifying them.
+	@Benchmark
+	public Solution sharedCopy() {
+		return new Solution(solution);
+	}
+	
+	// Copy of every list, done when a solution is given to another thread
+	@Benchmark
+	public Solution deepCopy() {
+		return solution.deepCopy();
+	}
+}
@@ -0,0 +1,76 @@
+package template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Random instances for the benchmarks, built without any topology. The cities are
+// spread uniformly on a square with euclidean distances, the tasks have a weight
+// between 1 and MAX_WEIGHT, and every vehicle has the same capacity.
+public class SyntheticInstance {
+	public static final int MAX_WEIGHT = 10;
+	private static final int SIZE = 1000; // Side of the square the cities are spread on
+	private static final double COST_PER_KM = 5;
+	
+	// Create an instance. tightness is in (0, 1], the capacity of the vehicles is
+	// MAX_WEIGHT/tightness so that with 1 a vehicle may carry a single task at a time.
+	public static Instance create(int numCities, int numTasks, int numVehicles,
+			double tightness, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		
+		// Cities and the distance between each pair of them
+		double[] x = new double[numCities], y = new double[numCities];
+		for(int c = 0; c < numCities; c++) {
+			x[c] = random.nextDouble()*SIZE;
+			y[c] = random.nextDouble()*SIZE;
+		}
+		double[] distances = new double[numCities*numCities];
+		for(int i = 0; i < numCities; i++) {
+			for(int j = 0; j < numCities; j++) {
+				distances[i*numCities + j] = Math.hypot(x[i] - x[j], y[i] - y[j]);
+			}
+		}
+		
+		// Tasks between two different cities
+		int[] pickupCity = new int[numTasks], deliveryCity = new int[numTasks];
+		int[] weight = new int[numTasks];
+		for(int t = 0; t < numTasks; t++) {
+			pickupCity[t] = random.nextInt(numCities);
+			deliveryCity[t] = (pickupCity[t] + 1 + random.nextInt(numCities - 1)) % numCities;
+			weight[t] = 1 + random.nextInt(MAX_WEIGHT);
+		}
+		
+		// Vehicles starting in random cities
+		int capacity = (int) Math.ceil(MAX_WEIGHT/tightness);
+		int[] vehicleStart = new int[numVehicles], vehicleCapacity = new int[numVehicles];
+		double[] costPerKm = new double[numVehicles];
+		for(int v = 0; v < numVehicles; v++) {
+			vehicleStart[v] = random.nextInt(numCities);
+			vehicleCapacity[v] = capacity;
+			costPerKm[v] = COST_PER_KM;
+		}
+		
+		return new Instance(new DistanceMatrix(numCities, distances), pickupCity, deliveryCity,
+				weight, vehicleStart, vehicleCapacity, costPerKm);
+	}
+	
+	// Return a solution with the tasks randomly spread between the vehicles, as the
+	// initial solution of the agent.
+	public static Solution randomSolution(Instance instance, SplittableRandom random) {
+		List<List<Integer>> tasksPerVehicle = new ArrayList<List<Integer>>();
+		for(int v = 0; v < instance.numVehicles; v++) {
+			tasksPerVehicle.add(new ArrayList<Integer>());
+		}
+		
+		for(int t = 0; t < instance.numTasks; t++) {
+			tasksPerVehicle.get(random.nextInt(instance.numVehicles)).add(t);
+		}
+		
+		Solution solution = new Solution(instance);
+		for(int v = 0; v < instance.numVehicles; v++) {
+			solution.putVehicle(v, tasksPerVehicle.get(v));
+		}
+		
+		return solution;
+	}
+}
@@ -0,0 +1,24 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Interface of the rules deciding whether a search moves to a sampled neighbour. The
+// implementations may keep a state, so each search needs its own instance.
+public interface AcceptanceCriterion {
+	// Return whether to move from the current solution to a neighbour, given their
+	// costs. progress is the fraction of the time of the search elapsed, in [0, 1].
+	boolean accept(double cost, double candidateCost, double progress, SplittableRandom random);
+	
+	// Return a new criterion with the given name and its default parameters:
+	// "annealing", "late-acceptance" or "threshold"
+	static AcceptanceCriterion forName(String name) {
+		if(name.equals("annealing"))
+			return new SimulatedAnnealing(0.01, 0.0001);
+		if(name.equals("late-acceptance"))
+			return new LateAcceptance(5000);
+		if(name.equals("threshold"))
+			return new ThresholdAccepting(0.005);
+		
+		throw new IllegalArgumentException("Unknown acceptance criterion: " + name);
+	}
+}
@@ -0,0 +1,210 @@
+package template;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Class running an adaptive large neighbourhood search, one iteration at a time. At each
+// iteration a destroy operator removes a random number of tasks from a copy of the
+// current solution, a repair operator inserts them back, and the acceptance criterion
+// decides whether the search moves to the result. The operators are drawn with
+// probabilities proportional to their weights, which follow how well each operator did
+// over the last segment of SEGMENT_ITER iterations.
+public class AdaptiveLargeNeighbourhoodSearch {
+	// Scores of an operator for leading to a new best solution, to a solution better
+	// than the current one, and to an accepted worse one
+	private static final double NEW_BEST_SCORE = 33;
+	private static final double BETTER_SCORE = 9;
+	private static final double ACCEPTED_SCORE = 13;
+	
+	private static final int SEGMENT_ITER = 100; // Iterations between weight updates
+	private static final double REACTION = 0.1; // Part of the weights taken from the last
+	                                            // segment at each update
+	private static final double MIN_WEIGHT = 0.05; // Weights never get lower than this
+	
+	// Number of tasks removed at each iteration, drawn uniformly between 1 and this
+	// fraction of the tasks with at least MIN_REMOVED and at most MAX_REMOVED
+	private static final double REMOVED_FRACTION = 0.2;
+	private static final int MIN_REMOVED = 4;
+	private static final int MAX_REMOVED = 60;
+	
+	private final SplittableRandom random;
+	private final AcceptanceCriterion acceptance;
+	private final DestroyOperator[] destroyOperators;
+	private final RepairOperator[] repairOperators;
+	
+	// Weight of each operator, and score and number of uses during the current segment
+	private final double[] destroyWeights, repairWeights;
+	private final double[] destroyScores, repairScores;
+	private final int[] destroyUses, repairUses;
+	
+	// State of the search
+	private Solution current, best;
+	private int iter, stagnationIter;
+	private final int maxRemoved;
+	private final int[] removed;
+	private final SolverStats stats;
+	
+	public AdaptiveLargeNeighbourhoodSearch(Solution initSolution, SplittableRandom random,
+			AcceptanceCriterion acceptance, DestroyOperator[] destroyOperators,
+			RepairOperator[] repairOperators) {
+		this.random = random;
+		this.acceptance = acceptance;
+		this.destroyOperators = destroyOperators;
+		this.repairOperators = repairOperators;
+		
+		this.destroyWeights = new double[destroyOperators.length];
+		this.repairWeights = new double[repairOperators.length];
+		this.destroyScores = new double[destroyOperators.length];
+		this.repairScores = new double[repairOperators.length];
+		this.destroyUses = new int[destroyOperators.length];
+		this.repairUses = new int[repairOperators.length];
+		Arrays.fill(destroyWeights, 1);
+		Arrays.fill(repairWeights, 1);
+		
+		int numTasks = initSolution.getInstance().numTasks;
+		this.current = new Solution(initSolution);
+		this.best = current;
+		this.iter = 0;
+		this.stagnationIter = 0;
+		this.maxRemoved = Math.min(numTasks, Math.min(MAX_REMOVED,
+				Math.max(MIN_REMOVED, (int) (REMOVED_FRACTION*numTasks))));
+		this.removed = new int[numTasks];
+		
+		this.stats = new SolverStats();
+		stats.start();
+		stats.onBest(0, best.getCost());
+	}
+	
+	// Perform one iteration, progress being the fraction of the time of the search
+	// elapsed. Return false if there is no task to move.
+	public boolean step(double progress) {
+		if(maxRemoved == 0)
+			return false;
+		
+		int d = this.draw(destroyWeights);
+		int r = this.draw(repairWeights);
+		int count = 1 + random.nextInt(maxRemoved);
+		
+		long start = System.nanoTime();
+		Solution candidate = new Solution(current);
+		count = destroyOperators[d].destroy(candidate, count, random, removed);
+		long destroyed = System.nanoTime();
+		boolean repaired = repairOperators[r].repair(candidate, removed, count, random);
+		long end = System.nanoTime();
+		stats.addPhase(SolverStats.Phase.DESTROY, destroyed - start);
+		stats.addPhase(SolverStats.Phase.REPAIR, end - destroyed);
+		stats.addNeighbours(1);
+		
+		double score = 0;
+		if(repaired && acceptance.accept(current.getCost(), candidate.getCost(), progress, random)) {
+			if(candidate.getCost() < best.getCost())
+				score = NEW_BEST_SCORE;
+			else if(candidate.getCost() < current.getCost())
+				score = BETTER_SCORE;
+			else
+				score = ACCEPTED_SCORE;
+			
+			current = candidate;
+			stats.onAccept();
+		}
+		else {
+			stats.onReject();
+		}
+		
+		iter++;
+		stagnationIter++;
+		
+		// The current solution is never modified in place, so it can be shared with
+		// the best one
+		if(current.getCost() < best.getCost()) {
+			best = current;
+			stagnationIter = 0;
+			stats.onBest(iter, best.getCost());
+		}
+		
+		destroyScores[d] += score;
+		destroyUses[d]++;
+		repairScores[r] += score;
+		repairUses[r]++;
+		
+		if(iter % SEGMENT_ITER == 0) {
+			updateWeights(destroyWeights, destroyScores, destroyUses);
+			updateWeights(repairWeights, repairScores, repairUses);
+		}
+		
+		return true;
+	}
+	
+	// Draw an operator with a probability proportional to its weight
+	private int draw(double[] weights) {
+		double total = 0;
+		for(double weight : weights) {
+			total += weight;
+		}
+		
+		double u = random.nextDouble()*total;
+		for(int k = 0; k < weights.length - 1; k++) {
+			u -= weights[k];
+			if(u < 0)
+				return k;
+		}
+		
+		return weights.length - 1;
+	}
+	
+	// Move the weights towards the average score of each operator over the segment,
+	// and start a new segment
+	private static void updateWeights(double[] weights, double[] scores, int[] uses) {
+		for(int k = 0; k < weights.length; k++) {
+			if(uses[k] > 0) {
+				weights[k] = Math.max(MIN_WEIGHT,
+						(1 - REACTION)*weights[k] + REACTION*scores[k]/uses[k]);
+			}
+			
+			scores[k] = 0;
+			uses[k] = 0;
+		}
+	}
+	
+	// Return the telemetry of the search, started when it was created
+	public SolverStats getStats() {
+		return stats;
+	}
+	
+	// Return a description of the current weight of each operator
+	public String getWeights() {
+		String msg = "";
+		
+		for(int k = 0; k < destroyOperators.length; k++) {
+			msg += destroyOperators[k] + " " + String.format("%.2f", destroyWeights[k]) + ", ";
+		}
+		for(int k = 0; k < repairOperators.length; k++) {
+			msg += repairOperators[k] + " " + String.format("%.2f", repairWeights[k])
+					+ (k < repairOperators.length - 1 ? ", " : "");
+		}
+		
+		return msg;
+	}
+	
+	public Solution getBest() {
+		return best;
+	}
+	
+	public double getBestCost() {
+		return best.getCost();
+	}
+	
+	public double getCost() {
+		return current.getCost();
+	}
+	
+	// Return the number of iterations performed
+	public int getIter() {
+		return iter;
+	}
+	
+	// Return the number of iterations since the best solution was last improved
+	public int getStagnationIter() {
+		return stagnationIter;
+	}
+}
@@ -0,0 +1,267 @@
+package template;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Solver of a library of instances without any simulation, e.g. to compare two versions
+// of the solver over hundreds of instances:
+//
+//   java template.BatchRunner [options] <instance file or directory>...
+//
+// Every file of a directory is an instance, either a snapshot, see Snapshot, or a text
+// file read by InstanceReader. The options are:
+//
+//   -threads <n>         instances solved at the same time, one per thread (default:
+//                        number of processors)
+//   -time <ms>           time budget of each instance (default 10000)
+//   -seed <seed>         seed of every search, so that the runs can be reproduced (default 0)
+//   -construction <name> initial solution, see ConstructionHeuristic.forName (default cheapest)
+//   -label <label>       written in each result, e.g. the version of the solver
+//   -out <file>          CSV file the results are appended to (default results.csv)
+//
+// Each instance is solved as CentralizedAgent does by default: an initial solution
+// improved by the SLS until the budget is spent, restarting from the best solution when
+// it stagnates, and the routes of the best solution polished. Each result is appended to
+// the CSV as soon as its instance is solved, so an interrupted batch keeps its results,
+// and several batches can be compared in the same file by their labels.
+public class BatchRunner {
+	private static final String HEADER = "label,instance,tasks,vehicles,seed,budget_ms,"
+			+ "initial_cost,cost,time_to_best_ms,iterations,iterations_per_second,"
+			+ "neighbours_per_second,status";
+	
+	// Parameters of the SLS, the defaults of CentralizedAgent
+	private static final double RANDOM_FACTOR = 0.5;
+	private static final int MAX_STAGNATION_ITER = 2000;
+	private static final int MAX_LOCAL_STAGNATION_ITER = 100;
+	private static final int PERTUBATION_STEPS = 2;
+	
+	private final long budget;
+	private final long seed;
+	private final ConstructionHeuristic construction;
+	private final String label;
+	private final PrintWriter out;
+	
+	public BatchRunner(long budget, long seed, ConstructionHeuristic construction, String label,
+			PrintWriter out) {
+		this.budget = budget;
+		this.seed = seed;
+		this.construction = construction;
+		this.label = label;
+		this.out = out;
+	}
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		long budget = 10000;
+		long seed = 0;
+		String construction = "cheapest";
+		String label = "";
+		File outFile = new File("results.csv");
+		List<File> files = new ArrayList<File>();
+		
+		for(int a = 0; a < args.length; a++) {
+			if(!args[a].startsWith("-")) {
+				File file = new File(args[a]);
+				if(file.isDirectory()) {
+					File[] children = file.listFiles();
+					Arrays.sort(children);
+					for(File child : children) {
+						if(child.isFile())
+							files.add(child);
+					}
+				}
+				else {
+					files.add(file);
+				}
+				continue;
+			}
+			
+			if(a + 1 == args.length)
+				throw new IllegalArgumentException("Missing value of " + args[a]);
+			String value = args[++a];
+			
+			if(args[a - 1].equals("-threads"))
+				threads = Integer.parseInt(value);
+			else if(args[a - 1].equals("-time"))
+				budget = Long.parseLong(value);
+			else if(args[a - 1].equals("-seed"))
+				seed = Long.parseLong(value);
+			else if(args[a - 1].equals("-construction"))
+				construction = value;
+			else if(args[a - 1].equals("-label"))
+				label = value;
+			else if(args[a - 1].equals("-out"))
+				outFile = new File(value);
+			else
+				throw new IllegalArgumentException("Unknown option: " + args[a - 1]);
+		}
+		
+		if(files.isEmpty()) {
+			System.err.println("Usage: java template.BatchRunner [-threads n] [-time ms] [-seed seed] "
+					+ "[-construction name] [-label label] [-out file] <instance file or directory>...");
+			System.exit(1);
+		}
+		
+		// The header is only written in a new file, the results of the previous batches
+		// are kept
+		boolean newFile = !outFile.exists() || outFile.length() == 0;
+		PrintWriter out = new PrintWriter(new FileWriter(outFile, true));
+		if(newFile) {
+			out.println(HEADER);
+			out.flush();
+		}
+		
+		try {
+			BatchRunner runner = new BatchRunner(budget, seed, ConstructionHeuristic.forName(construction),
+					label, out);
+			int failed = runner.run(files, threads);
+			
+			System.out.println("Solved " + (files.size() - failed) + " of " + files.size()
+					+ " instances, results in " + outFile);
+		}
+		finally {
+			out.close();
+		}
+	}
+	
+	// Solve the given instances with the given number of threads, and return the number
+	// of instances which could not be solved
+	public int run(List<File> files, int threads) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		
+		for(final File file : files) {
+			results.add(executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					return solve(file);
+				}
+			}));
+		}
+		
+		int failed = 0;
+		try {
+			for(Future<Boolean> result : results) {
+				if(!result.get())
+					failed++;
+			}
+		}
+		catch(ExecutionException exc) {
+			throw new RuntimeException("A solver failed", exc.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		
+		return failed;
+	}
+	
+	// Solve an instance and append its result. Return false if it could not be solved. An
+	// instance which cannot be read or makes the solver fail gets an error row, so that
+	// the rest of the batch still runs.
+	private boolean solve(File file) {
+		Instance instance;
+		try {
+			instance = Snapshot.isInstance(file) ? Snapshot.readInstance(file) : InstanceReader.read(file);
+		}
+		catch(IOException exc) {
+			this.append(file.getName(), -1, -1, Double.NaN, null, null, "error: " + exc.getMessage());
+			return false;
+		}
+		catch(RuntimeException exc) {
+			this.append(file.getName(), -1, -1, Double.NaN, null, null, "error: " + exc);
+			return false;
+		}
+		
+		try {
+			return this.solve(file, instance);
+		}
+		catch(RuntimeException exc) {
+			exc.printStackTrace();
+			this.append(file.getName(), instance.numTasks, instance.numVehicles, Double.NaN, null,
+					null, "error: " + exc);
+			return false;
+		}
+	}
+	
+	private boolean solve(File file, Instance instance) {
+		long deadline = System.currentTimeMillis() + budget;
+		SplittableRandom random = new SplittableRandom(seed);
+		Solution initSolution = construction.build(instance, random);
+		if(initSolution == null) {
+			this.append(file.getName(), instance.numTasks, instance.numVehicles, Double.NaN, null,
+					null, "infeasible");
+			return false;
+		}
+		
+		StochasticLocalSearch sls = new StochasticLocalSearch(initSolution, random, null,
+				RANDOM_FACTOR, MAX_LOCAL_STAGNATION_ITER, PERTUBATION_STEPS);
+		Deadline clock = new Deadline(deadline);
+		
+		while(true) {
+			if(sls.getStagnationIter() >= MAX_STAGNATION_ITER)
+				sls.restartFromBest();
+			
+			if(!sls.step() || clock.tick())
+				break;
+		}
+		
+		SolverStats stats = sls.getStats();
+		stats.stop();
+		
+		Solution best = new Solution(sls.getBest());
+		best.improveRoutes();
+		
+		this.append(file.getName(), instance.numTasks, instance.numVehicles, initSolution.getCost(),
+				best, stats, "ok");
+		return true;
+	}
+	
+	// Append a row of results, best and stats being null if the instance was not solved,
+	// and the sizes -1 if it could not be read
+	private void append(String name, int tasks, int vehicles, double initialCost, Solution best,
+			SolverStats stats, String status) {
+		double elapsed = stats != null ? stats.getElapsedNanos()/1e9 : 0;
+		String row = csv(label) + "," + csv(name) + "," + (tasks >= 0 ? tasks : "") + ","
+				+ (vehicles >= 0 ? vehicles : "") + "," + seed + ","
+				+ budget + "," + format(initialCost) + ","
+				+ (best != null ? format(best.getCost()) : "") + ","
+				+ (stats != null && stats.getTraceSize() > 0
+						? format(stats.getTraceMillis(stats.getTraceSize() - 1)) : "") + ","
+				+ (stats != null ? stats.getIterations() : "") + ","
+				+ (stats != null && elapsed > 0 ? format(stats.getIterations()/elapsed) : "") + ","
+				+ (stats != null ? format(stats.getNeighboursPerSecond()) : "") + ","
+				+ csv(status);
+		
+		synchronized(out) {
+			out.println(row);
+			out.flush();
+		}
+		
+		System.out.println(name + ": " + status + (best != null ? ", cost " + format(best.getCost()) : ""));
+	}
+	
+	private static String format(double value) {
+		return Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.3f", value);
+	}
+	
+	// Quote a value if it would break the CSV
+	private static String csv(String value) {
+		if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0)
+			return value;
+		
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+}
@@ -1,14 +1,16 @@
 package template;
 
+import java.awt.GraphicsEnvironment;
 import java.io.File;
+import java.io.IOException;
 //the list of imports
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-
-import javax.swing.JFrame;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
 
 import logist.LogistSettings;
 import logist.agent.Agent;
@@ -22,18 +24,50 @@ import logist.task.TaskDistribution;
 import logist.task.TaskSet;
 import logist.topology.Topology;
 import logist.topology.Topology.City;
-import ptolemy.plot.Plot;
-import ptolemy.plot.PlotFrame;
 import logist.plan.Action.Move;
 
 @SuppressWarnings("unused")
 public class CentralizedAgent implements CentralizedBehavior {
+    
+    // Part of timeout_plan kept free to build and return the plans, with a minimum
+    // in milliseconds
+    private static final double PLAN_SAFETY_MARGIN = 0.02;
+    private static final long MIN_PLAN_SAFETY_MARGIN = 200;
+    private static final int WARM_ITER_PER_TASK = 200; // SLS iterations after a warm start,
+                                                       // per task removed or added
 
     private Topology topology;
     private TaskDistribution distribution;
     private Agent agent;
     private long timeout_setup;
     private long timeout_plan;
+    private DistanceMatrix distances;
+    private ForkJoinPool pool; // Pool scoring the neighbours, null to score them in the
+                               // planning thread
+    private int islands; // Number of searches run in parallel, see IslandSearch
+    private int migrationInterval;
+    private int clusters; // Number of clusters of vehicles, see DecompositionSearch, 1 for
+                          // no decomposition
+    private long exchangeInterval; // Milliseconds between two exchanges of the clusters
+    private long seed; // Seed of the random generator of the solver
+    private boolean showPlot; // Whether to show a live plot of the cost during the search
+    private String statsDir; // Directory the telemetry of each run is written to, or null
+    private ConstructionHeuristic construction; // Builder of the initial solutions
+    private WarmStart warmStart; // Builder from the previous best solution, or null
+    private String acceptance; // Name of the acceptance criterion of a sampled search, or
+                               // null for the exhaustive SLS
+    private boolean alns; // Whether to run the adaptive large neighbourhood search
+    private int tabuTenure; // Iterations a move stays tabu in the SLS, 0 for no tabu
+    private int cacheSize; // Entries of the cache of insertions of the ALNS, 0 for none
+    private NearestCities nearest; // Nearest cities of the granular neighbourhood of the
+                                   // SLS, or null for the full neighbourhood
+    private boolean polishFinal; // Whether to improve the routes of the best solution
+    private boolean polishMoves; // Whether to improve the routes changed by each move of
+                                 // the SLS
+    private File checkpoint; // Snapshot of the best solution, or null for none
+    private long checkpointInterval; // Minimum milliseconds between two checkpoints
+    private Checkpointer checkpointer; // Writer of the checkpoint of the current plan, or
+                                       // null for none
     
     @Override
     public void setup(Topology topology, TaskDistribution distribution,
@@ -56,20 +90,141 @@ public class CentralizedAgent implements CentralizedBehavior {
         this.topology = topology;
         this.distribution = distribution;
         this.agent = agent;
+        
+        // Compute the distance between every pair of cities once for all
+        this.distances = new DistanceMatrix(topology);
+        
+        // Number of threads used to score the neighbours
+        int threads = agent.readProperty("threads", Integer.class, 1);
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        
+        // Number of independent searches, and iterations between their migrations
+        this.islands = agent.readProperty("islands", Integer.class, 1);
+        this.migrationInterval = agent.readProperty("migration-interval", Integer.class, 500);
+        
+        // Number of clusters the fleet is split in by region, and milliseconds between
+        // their exchanges of tasks
+        this.clusters = agent.readProperty("clusters", Integer.class, 1);
+        this.exchangeInterval = agent.readProperty("exchange-interval", Long.class, 1000L);
+        
+        // Seed of every random choice of the solver, so that a run can be reproduced
+        this.seed = agent.readProperty("seed", Long.class, new Random().nextLong());
+        
+        // The live plot is off by default, and never shown without a display
+        this.showPlot = agent.readProperty("show-plot", Boolean.class, false);
+        if(showPlot && GraphicsEnvironment.isHeadless()) {
+        	System.out.println("No display available, the live plot is disabled.");
+        	this.showPlot = false;
+        }
+        
+        // Telemetry of the runs, see SolverStats
+        this.statsDir = agent.readProperty("stats-dir", String.class, null);
+        
+        // Heuristic building the initial solution, see ConstructionHeuristic.forName
+        this.construction = ConstructionHeuristic.forName(
+        		agent.readProperty("construction", String.class, "cheapest"));
+        
+        // Re-planning from the previous best solution, see WarmStart. After a warm start
+        // the exhaustive SLS only runs for a while, in proportion to the number of tasks
+        // which changed, and the other searches start from the warm-start solution.
+        if(agent.readProperty("warm-start", Boolean.class, false))
+        	this.warmStart = new WarmStart(construction);
+        
+        // Acceptance criterion of the sampled search, see AcceptanceCriterion.forName.
+        // Without it the exhaustive SLS is used.
+        this.acceptance = agent.readProperty("acceptance", String.class, null);
+        if(acceptance != null)
+        	AcceptanceCriterion.forName(acceptance);
+        
+        // The search is either "sls", the exhaustive or sampled local search above, or
+        // "alns", the adaptive large neighbourhood search with the acceptance criterion
+        // above, simulated annealing by default
+        String search = agent.readProperty("search", String.class, "sls");
+        if(!search.equals("sls") && !search.equals("alns"))
+        	throw new IllegalArgumentException("Unknown search: " + search);
+        this.alns = search.equals("alns");
+        
+        // Tabu moves of the exhaustive SLS, see TabuList
+        this.tabuTenure = agent.readProperty("tabu-tenure", Integer.class, 0);
+        
+        // Cache of the insertions scored by the repairs of the ALNS, see EvaluationCache
+        this.cacheSize = agent.readProperty("cache-size", Integer.class, 1 << 16);
+        
+        // Number of nearest cities of each city a moved task may be inserted next to in
+        // the SLS, 0 for the full neighbourhood, see NearestCities
+        int granularK = agent.readProperty("granular-k", Integer.class, 0);
+        this.nearest = granularK > 0 ? new NearestCities(distances, granularK) : null;
+        
+        // 2-opt and Or-opt improvement of the routes, see TaskList.improve: "none",
+        // "final" for the best solution only, or "moves" for each move of the exhaustive
+        // SLS as well
+        String polish = agent.readProperty("polish", String.class, "final");
+        if(!polish.equals("none") && !polish.equals("final") && !polish.equals("moves"))
+        	throw new IllegalArgumentException("Unknown polish: " + polish);
+        this.polishFinal = !polish.equals("none");
+        this.polishMoves = polish.equals("moves");
+        
+        // File the best solution is written to during the search and at the end of each run,
+        // and resumed from by the next run of the same tasks and vehicles, see Snapshot
+        String checkpointPath = agent.readProperty("checkpoint", String.class, null);
+        this.checkpoint = checkpointPath != null ? new File(checkpointPath) : null;
+        this.checkpointInterval = agent.readProperty("checkpoint-interval", Long.class, 10000L);
     }
 
     @Override
     public List<Plan> plan(List<Vehicle> vehicles, TaskSet tasks) {
         long time_start = System.currentTimeMillis();
+        long margin = Math.max(MIN_PLAN_SAFETY_MARGIN, (long) (PLAN_SAFETY_MARGIN*timeout_plan));
+        long deadline = time_start + timeout_plan - margin;
         
         List<Plan> plans = new ArrayList<Plan>();
         
-        // Get an initial solution
-        Solution initSol = this.getInitialSolution(vehicles, tasks);
+        // Every random choice comes from this generator, split for each thread
+        SplittableRandom random = new SplittableRandom(seed);
+        System.out.println("Planning with seed " + seed);
         
-        // Compute a good plan with the SLS algorithm
-        Map<Vehicle, Plan> planMap = this.computeSLS(initSol, 0.5, 20000, 2000, 100, 2,
-        		true);
+        // Get an initial solution, the checkpoint of a previous run if there is one
+        Instance instance = new Instance(distances, vehicles, tasks);
+        this.checkpointer = checkpoint != null ? new Checkpointer(checkpoint, checkpointInterval) : null;
+        Solution resumed = checkpointer != null ? checkpointer.read(instance) : null;
+        Solution initSol = resumed != null ? resumed
+        		: (warmStart != null ? warmStart : construction).build(instance, random);
+        
+        // The searches building their own initial solutions start from the resumed or
+        // warm-start one if there is one
+        boolean warm = resumed == null && warmStart != null && warmStart.getChangedTasks() >= 0;
+        Solution start = warm ? initSol : resumed;
+        if(warm)
+        	System.out.println("Warm start, " + warmStart.getChangedTasks() + " tasks changed");
+        
+        // Compute a good plan with the SLS algorithm, searching as long as the time
+        // allows it
+        Map<Vehicle, Plan> planMap;
+        if(clusters > 1) {
+        	planMap = this.computeDecomposition(instance, start, random, 0.5, 2000, 100, 2, deadline);
+        }
+        else if(islands > 1) {
+        	planMap = this.computeIslandSLS(instance, start, random, islands, 0.5, 2000, 100, 2, deadline);
+        }
+        else if(alns) {
+        	AcceptanceCriterion criterion = AcceptanceCriterion.forName(
+        			acceptance != null ? acceptance : "annealing");
+        	planMap = this.computeALNS(initSol, random, criterion, deadline);
+        }
+        else if(acceptance != null) {
+        	planMap = this.computeSampledSearch(initSol, random,
+        			AcceptanceCriterion.forName(acceptance), deadline);
+        }
+        else if(warm) {
+        	int maxIter = WARM_ITER_PER_TASK*Math.max(1, warmStart.getChangedTasks());
+        	planMap = this.computeSLS(initSol, random, 0.5, maxIter, 2000, 100, 2, deadline, null);
+        }
+        else {
+        	SearchListener listener = showPlot
+        			? new LivePlot("SLS Algorithm, Cost over iterations", 4096) : null;
+        	planMap = this.computeSLS(initSol, random, 0.5, Integer.MAX_VALUE, 2000, 100, 2,
+        			deadline, listener);
+        }
         
         for(Vehicle v : vehicles) {
         	Plan plan = planMap.get(v);
@@ -87,170 +242,234 @@ public class CentralizedAgent implements CentralizedBehavior {
         return plans;
     }
 
-    // Return a solution with the tasks randomly spread between the vehicles. Return
-    // null if not possible.
-    private Solution getInitialSolution(List<Vehicle> vehicles, TaskSet tasks) {
-    	Solution initSol = new Solution();
-    	
-    	Random random = new Random();
-    	Map<Vehicle, List<Task>> tasksPerVehicle = new HashMap<Vehicle, List<Task>>();
-    	
-    	// Create an empty list of Task for each vehicle
-    	for(Vehicle v : vehicles) {
-    		tasksPerVehicle.put(v, new ArrayList<Task>());
-    	}
-    	
-    	// For each task
-    	for(Task t : tasks) {
-    		List<Vehicle> admissibleVehicles = new ArrayList<Vehicle>();
-    		
-    		// Compute the list of admissible vehicle for this task, i.e. the ones with
-    		// a capacity big enough
-    		for(Vehicle v : vehicles) {
-    			if(v.capacity() >= t.weight)
-    				admissibleVehicles.add(v);
-    		}
-    		
-    		// If the list is empty, the problem in unsolvable
-    		if(admissibleVehicles.isEmpty())
-    			return null;
-    		
-    		// Add the task to a random admissible vehicle
-    		int i = random.nextInt(admissibleVehicles.size());
-    		tasksPerVehicle.get(admissibleVehicles.get(i)).add(t);
-    	}
-    	
-    	// Create the solution with the computed task distribution
-    	for(Map.Entry<Vehicle, List<Task>> entry : tasksPerVehicle.entrySet()) {
-    		initSol.putVehicle(entry.getKey(), entry.getValue());
-    	}
-    	
-    	return initSol;
-    }
-    
     // Compute the stochastic local search algorithm with the given initial solution and
     // parameters.
+    // random: generator of every random choice, a given seed gives the same iterations
     // randomFactor: probability to keep the last solution if the new one is worse
     // maxIter: overall maximum iterations allowed
     // maxStagnationIter: number of iterations allowed without finding a new best solution
     // maxLocalStagnationIter: number of iterations with no improvement of the local best
     //		solution before applying a perturbation
     // perturbationSteps: number of random steps performed for the perturbation
-    // showPlot: whether to show a live plot of the results or not
-    private Map<Vehicle, Plan> computeSLS(Solution initSolution, double randomFactor,
-    		int maxIter, int maxStagnationIter, int maxLocalStagnationIter,
-    		int pertubationSteps, boolean showPlot) {
-    	Solution A = initSolution, best = initSolution;
-    	double cost = initSolution.getCost();
-    	double overallBestCost = Double.POSITIVE_INFINITY, localBestCost = Double.POSITIVE_INFINITY;
-    	Random random = new Random();
-    	int iter = 0, stagnationIter = 0, localStagnationIter = 0;
+    // deadline: time in milliseconds at which the best solution must be returned, or
+    //		Long.MAX_VALUE for none. With a deadline the search is anytime: instead of
+    //		stopping when stagnating it restarts from the best solution, and it stops
+    //		when the remaining time gets close to the duration of one iteration.
+    // listener: notified after each iteration, e.g. a LivePlot, or null for none
+    private Map<Vehicle, Plan> computeSLS(Solution initSolution, SplittableRandom random,
+    		double randomFactor, int maxIter, int maxStagnationIter, int maxLocalStagnationIter,
+    		int pertubationSteps, long deadline, SearchListener listener) {
+    	StochasticLocalSearch sls = new StochasticLocalSearch(initSolution, random, pool,
+    			randomFactor, maxLocalStagnationIter, pertubationSteps, tabuTenure);
+    	sls.setPolishMoves(polishMoves);
+    	sls.setGranular(nearest, maxLocalStagnationIter/2);
+    	Deadline clock = new Deadline(deadline);
+    	boolean deadlineReached = false;
+    	int iter = 0;
 
-    	// Setup graph
-    	JFrame frame;
-    	Plot plot = null;
-    	if(showPlot) {
-    		frame = new JFrame("SLS Algorithm, Cost over iterations");
-    		plot = new Plot();
-    		plot.setTitle("SLS Algorithm, Cost over iterations");
-    		plot.setXLabel("Iteration n");
-    		plot.setYLabel("Cost");
-    		plot.addLegend(0, "Current");
-    		plot.addLegend(1, "Best");
-    		plot.setYLog(true);
-        	frame.add(plot);
-        	frame.pack();
-        	frame.setVisible(true);
-    	}
-    	
-    	// Search until we reached maxIter or didn't find a better solution for a while
-    	while(iter < maxIter && stagnationIter < maxStagnationIter) {
-    		List<Solution> neighbours;
-    		
-    		// If we are trapped in a local minima
-    		if(localStagnationIter >= maxLocalStagnationIter) {
-    			// Perform some random steps
-    			for(int i = 0; i < pertubationSteps; i++) {
-    				neighbours = A.getNeighbours();
-	    			int randomID = random.nextInt(neighbours.size());
-	    			A = neighbours.get(randomID);
-    			}
+    	// Search until we reached maxIter or the deadline, or didn't find a better
+    	// solution for a while
+    	while(iter < maxIter) {
+    		if(sls.getStagnationIter() >= maxStagnationIter) {
+    			if(!clock.isSet())
+    				break;
     			
-    			localStagnationIter = 0;
-    			cost = A.getCost();
-    			localBestCost = cost;
-    		}
-    		else {
-    			double bestCost = Double.POSITIVE_INFINITY;
-    			List<Solution> bestSolutions = new ArrayList<Solution>();
-        		double oldCost = cost;
-    			
-        		// Get the neighbours of the current solution
-    			neighbours = A.getNeighbours();
-    			
-    			// Find the neighbour solutions with the lowest cost
-    			for(Solution s : neighbours) {
-    				cost = s.getCost();
-    				
-    				if(cost == bestCost) {
-    					bestSolutions.add(s);
-    				}
-    				if(cost < bestCost) {
-    					bestSolutions.clear();
-    					bestSolutions.add(s);
-    					bestCost = cost;
-    				}
-    			}
-    			
-    			// If this cost is still higher than the current cost, keep the current
-    			// solution with a certain probability
-        		if(bestCost > oldCost && random.nextDouble() < randomFactor) {
-					cost = oldCost;
-				}
-				else {
-					// Otherwise choose one of the best neighbours at random
-					int id = random.nextInt(bestSolutions.size());
-	    			A = bestSolutions.get(id);
-					cost = bestCost;
-				}
+    			// There is still time left, restart from the best solution with a
+    			// perturbation
+    			sls.restartFromBest();
     		}
     		
-    		// If the new cost is better than the local best one, update the local best
-    		// one and reset the local stagnation counter
-    		if(cost < localBestCost) {
-    			localBestCost = cost;
-    			localStagnationIter = 0;
-    		}
+    		if(!sls.step())
+    			break;
     		
-    		// If the new cost is better than the overall best one, update the overall
-    		// best one and reset the stagnation counter
-			if(cost < overallBestCost) {
-    			best = A;
-    			overallBestCost = cost;
-    			stagnationIter = 0;
-    		}
-    		
-			// Update the plot
-    		if(showPlot) {
-	        	plot.addPoint(0, iter, cost, true);
-	        	plot.addPoint(1, iter, overallBestCost, true);
-	        	plot.fillPlot();
-    		}
+    		if(listener != null)
+    			listener.onIteration(iter, sls.getCost(), sls.getBestCost());
     		
     		iter++;
-    		stagnationIter++;
-    		localStagnationIter++;
+    		
+    		// Write the best solution from time to time, so that a long run stopped halfway
+    		// can be resumed
+    		if(checkpointer != null && checkpointer.isDue(sls.getBestCost()))
+    			checkpointer.write(sls.getBest());
+    		
+    		// Stop if the next iteration may not end before the deadline
+    		if(clock.tick()) {
+    			deadlineReached = true;
+    			break;
+    		}
     	}
     	
-    	if(iter == maxIter) {
+    	if(deadlineReached) {
+    		System.out.println("Stopped because the deadline is close. iter = " + iter
+    				+ ", " + (long) clock.getIterationsPerSecond() + " iter/s");
+    	}
+    	else if(iter == maxIter) {
     		System.out.println("Stopped because max iter reached.");
     	}
     	else {
     		System.out.println("Stopped because stagnated for too long. iter = " + iter);
     	}
     	
+    	System.out.println("Final cost: " + sls.getBestCost());
+    	
+    	if(listener != null)
+    		listener.onEnd();
+    	
+    	SolverStats stats = sls.getStats();
+    	stats.stop();
+    	return this.buildPlans(sls.getBest(), stats);
+    }
+    
+    // Compute a local search on sampled neighbourhoods with the given acceptance
+    // criterion until the deadline, see SampledLocalSearch. The criterion follows the
+    // fraction of the time elapsed, so there must be a deadline.
+    private Map<Vehicle, Plan> computeSampledSearch(Solution initSolution, SplittableRandom random,
+    		AcceptanceCriterion criterion, long deadline) {
+    	SampledLocalSearch search = new SampledLocalSearch(initSolution, random, criterion);
+    	Deadline clock = new Deadline(deadline);
+    	
+    	while(search.step(clock.getProgress())) {
+    		if(checkpointer != null && checkpointer.isDue(search.getBestCost()))
+    			checkpointer.write(search.getBest());
+    		
+    		if(clock.tick())
+    			break;
+    	}
+    	
+    	System.out.println("Stopped because the deadline is close. iter = " + search.getIter()
+    			+ ", " + (long) clock.getIterationsPerSecond() + " iter/s");
+    	System.out.println("Final cost: " + search.getBestCost());
+    	
+    	SolverStats stats = search.getStats();
+    	stats.stop();
+    	return this.buildPlans(search.getBest(), stats);
+    }
+    
+    // Compute an adaptive large neighbourhood search with the given acceptance criterion
+    // until the deadline, see AdaptiveLargeNeighbourhoodSearch
+    private Map<Vehicle, Plan> computeALNS(Solution initSolution, SplittableRandom random,
+    		AcceptanceCriterion criterion, long deadline) {
+    	EvaluationCache cache = cacheSize > 0 ? new EvaluationCache(cacheSize) : null;
+    	DestroyOperator[] destroyOperators = {
+    			new RandomRemoval(), new WorstRemoval(3), new ShawRemoval(6) };
+    	RepairOperator[] repairOperators = { new InsertionHeuristic(1, cache),
+    			new InsertionHeuristic(2, cache), new InsertionHeuristic(3, cache) };
+    	
+    	AdaptiveLargeNeighbourhoodSearch search = new AdaptiveLargeNeighbourhoodSearch(
+    			initSolution, random, criterion, destroyOperators, repairOperators);
+    	Deadline clock = new Deadline(deadline);
+    	
+    	while(search.step(clock.getProgress())) {
+    		if(checkpointer != null && checkpointer.isDue(search.getBestCost()))
+    			checkpointer.write(search.getBest());
+    		
+    		if(clock.tick())
+    			break;
+    	}
+    	
+    	System.out.println("Stopped because the deadline is close. iter = " + search.getIter()
+    			+ ", " + (long) clock.getIterationsPerSecond() + " iter/s");
+    	System.out.println("Operator weights: " + search.getWeights());
+    	if(cache != null)
+    		System.out.println("Insertion cache: " + cache);
+    	System.out.println("Final cost: " + search.getBestCost());
+    	
+    	SolverStats stats = search.getStats();
+    	stats.stop();
+    	if(cache != null)
+    		stats.addCache(cache);
+    	return this.buildPlans(search.getBest(), stats);
+    }
+    
+    // Compute several stochastic local searches in parallel until the deadline, each
+    // from its own initial solution, see IslandSearch. The parameters are the
+    // ones of computeSLS. Each island gets its own split of the random generator.
+    // With a deterministic construction the islands start from the same solution and
+    // only their random generators make them diverge. The first island starts from
+    // initSolution instead if not null, a resumed checkpoint or a warm start.
+    private Map<Vehicle, Plan> computeIslandSLS(Instance instance, Solution initSolution,
+    		SplittableRandom random, int islands, double randomFactor, int maxStagnationIter,
+    		int maxLocalStagnationIter, int pertubationSteps, long deadline) {
+    	List<Solution> initSolutions = new ArrayList<Solution>();
+    	List<SplittableRandom> randoms = new ArrayList<SplittableRandom>();
+    	
+    	for(int i = 0; i < islands; i++) {
+    		SplittableRandom islandRandom = random.split();
+    		initSolutions.add(i == 0 && initSolution != null ? initSolution
+    				: construction.build(instance, islandRandom));
+    		randoms.add(islandRandom);
+    	}
+    	
+    	IslandSearch search = new IslandSearch(randomFactor, maxStagnationIter,
+    			maxLocalStagnationIter, pertubationSteps, migrationInterval);
+    	search.setSearchOptions(pool, tabuTenure, polishMoves, nearest, maxLocalStagnationIter/2);
+    	search.setCheckpointer(checkpointer);
+    	Solution best = search.run(initSolutions, randoms, deadline);
+    	
+    	System.out.println("Stopped at the deadline. " + islands + " islands, iter = "
+    			+ search.getTotalIter());
     	System.out.println("Final cost: " + best.getCost());
-
-    	return best.getPlans();
+    	
+    	return this.buildPlans(best, search.getStats());
+    }
+    
+    // Compute stochastic local searches on clusters of vehicles in parallel until the
+    // deadline, see DecompositionSearch. The parameters are the ones of computeSLS. The
+    // clusters start from initSolution if not null, a resumed checkpoint or a warm start.
+    // If a cluster has no initial solution, the whole instance is searched instead.
+    private Map<Vehicle, Plan> computeDecomposition(Instance instance, Solution initSolution,
+    		SplittableRandom random, double randomFactor, int maxStagnationIter,
+    		int maxLocalStagnationIter, int pertubationSteps, long deadline) {
+    	DecompositionSearch search = new DecompositionSearch(clusters, exchangeInterval,
+    			randomFactor, maxStagnationIter, maxLocalStagnationIter, pertubationSteps);
+    	search.setSearchOptions(pool, tabuTenure, polishMoves, nearest, maxLocalStagnationIter/2);
+    	search.setCheckpointer(checkpointer);
+    	Solution best = search.run(instance, initSolution, construction, random, deadline);
+    	
+    	if(best == null) {
+    		System.out.println("A cluster has no initial solution, searching the whole instance.");
+    		return this.computeSLS(construction.build(instance, random), random, randomFactor,
+    				Integer.MAX_VALUE, maxStagnationIter, maxLocalStagnationIter, pertubationSteps,
+    				deadline, null);
+    	}
+    	
+    	System.out.println("Stopped at the deadline. " + search.getNumClusters() + " clusters, "
+    			+ search.getRounds() + " rounds, " + search.getExchanges() + " tasks exchanged, iter = "
+    			+ search.getTotalIter());
+    	System.out.println("Final cost: " + best.getCost());
+    	
+    	return this.buildPlans(best, search.getStats());
+    }
+    
+    // Return the plans of the best solution of a run, and report its telemetry
+    private Map<Vehicle, Plan> buildPlans(Solution best, SolverStats stats) {
+    	long start = System.nanoTime();
+    	
+    	// The best solution may be shared with the search, so it is improved on a copy
+    	if(polishFinal) {
+    		best = new Solution(best);
+    		double delta = best.improveRoutes();
+    		System.out.println("Polished cost: " + best.getCost() + " (" + delta + ")");
+    	}
+    	
+    	Map<Vehicle, Plan> plans = best.getPlans();
+    	stats.addPhase(SolverStats.Phase.PLAN_BUILDING, System.nanoTime() - start);
+    	
+    	if(warmStart != null)
+    		warmStart.setPrevious(best);
+    	if(checkpointer != null)
+    		checkpointer.write(best);
+    	
+    	System.out.println("Stats: " + stats);
+    	if(statsDir != null) {
+    		try {
+    			stats.dump(new File(statsDir), "sls-" + System.currentTimeMillis());
+    		}
+    		catch(IOException exc) {
+    			System.out.println("The stats could not be written: " + exc.getMessage());
+    		}
+    	}
+    	
+    	return plans;
     }
 }
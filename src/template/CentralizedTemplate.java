@@ -30,6 +30,7 @@ public class CentralizedTemplate implements CentralizedBehavior {
     private Agent agent;
     private long timeout_setup;
     private long timeout_plan;
+    private DistanceMatrix distances; // Shortest paths between the cities
     
     @Override
     public void setup(Topology topology, TaskDistribution distribution,
@@ -52,6 +53,9 @@ public class CentralizedTemplate implements CentralizedBehavior {
         this.topology = topology;
         this.distribution = distribution;
         this.agent = agent;
+        
+        // Compute the shortest paths once for all
+        this.distances = new DistanceMatrix(topology);
     }
 
     @Override
@@ -80,16 +84,12 @@ public class CentralizedTemplate implements CentralizedBehavior {
 
         for (Task task : tasks) {
             // move: current city => pickup location
-            for (City city : current.pathTo(task.pickupCity)) {
-                plan.appendMove(city);
-            }
+            distances.appendPath(plan, current.id, task.pickupCity.id);
 
             plan.appendPickup(task);
 
             // move: pickup location => delivery location
-            for (City city : task.path()) {
-                plan.appendMove(city);
-            }
+            distances.appendPath(plan, task.pickupCity.id, task.deliveryCity.id);
 
             plan.appendDelivery(task);
 
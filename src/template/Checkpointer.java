@@ -0,0 +1,59 @@
+package template;
+
+import java.io.File;
+import java.io.IOException;
+
+// Checkpoint of the best solution of a run in a snapshot file, see Snapshot, so that a
+// long run stopped halfway can be resumed by the next run of the same tasks and
+// vehicles. Every search offers its best cost from time to time through isDue, and
+// writes its best solution when it returns true, i.e. when the cost is lower than the
+// one of the last checkpoint and the last checkpoint is at least interval milliseconds
+// old. The searches running on several threads share it, so it is synchronized.
+public class Checkpointer {
+	private final File file;
+	private final long interval; // Minimum milliseconds between two checkpoints
+	
+	// Last checkpoint
+	private double lastCost = Double.POSITIVE_INFINITY;
+	private long lastTime;
+	
+	public Checkpointer(File file, long interval) {
+		this.file = file;
+		this.interval = interval;
+		this.lastTime = System.currentTimeMillis();
+	}
+	
+	// Return whether a best solution of the given cost should be written now
+	public synchronized boolean isDue(double bestCost) {
+		return bestCost < lastCost && System.currentTimeMillis() - lastTime >= interval;
+	}
+	
+	// Write the given solution, whatever the time of the last checkpoint
+	public synchronized void write(Solution solution) {
+		try {
+			Snapshot.writeSolution(solution, file);
+			lastCost = solution.getCost();
+			lastTime = System.currentTimeMillis();
+		}
+		catch(IOException exc) {
+			System.out.println("The checkpoint could not be written: " + exc.getMessage());
+		}
+	}
+	
+	// Return the solution of the checkpoint if it was written for the given instance, or
+	// null
+	public Solution read(Instance instance) {
+		if(!file.exists())
+			return null;
+		
+		try {
+			Solution solution = Snapshot.readSolution(file, instance);
+			System.out.println("Resumed from " + file + ", cost " + solution.getCost());
+			return solution;
+		}
+		catch(IOException exc) {
+			System.out.println("The checkpoint could not be resumed: " + exc.getMessage());
+			return null;
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Interface of the heuristics building the initial solution of a search
+public interface ConstructionHeuristic {
+	// Return a solution where every task is assigned to a vehicle, or null if some task
+	// fits in no vehicle
+	Solution build(Instance instance, SplittableRandom random);
+	
+	// Return the heuristic with the given name: "random", "cheapest" for the cheapest
+	// insertion, or "regret-k" for the regret insertion over k vehicles, e.g. "regret-2"
+	static ConstructionHeuristic forName(String name) {
+		if(name.equals("random"))
+			return new RandomConstruction();
+		if(name.equals("cheapest"))
+			return new InsertionConstruction(1);
+		if(name.startsWith("regret-"))
+			return new InsertionConstruction(Integer.parseInt(name.substring("regret-".length())));
+		
+		throw new IllegalArgumentException("Unknown construction heuristic: " + name);
+	}
+}
@@ -0,0 +1,61 @@
+package template;
+
+// Class telling a search loop when to stop so that it returns before a deadline. It
+// measures the average duration of one iteration, and the deadline is considered
+// reached when the remaining time is less than a few of them.
+public class Deadline {
+	public static final long NONE = Long.MAX_VALUE;
+	
+	// The deadline is reached when the remaining time is less than this many times the
+	// measured duration of one iteration
+	private static final double ITERATION_SAFETY_FACTOR = 3;
+	
+	private final long startTime, endTime; // Creation and deadline on the nano time clock
+	private long lastTime;
+	private double iterTime; // Average duration of one iteration, in nanoseconds
+	private long iter;
+	
+	// Create a deadline at the given time in milliseconds, or NONE
+	public Deadline(long deadline) {
+		this.endTime = deadline == NONE ? Long.MAX_VALUE
+				: System.nanoTime() + 1000000*(deadline - System.currentTimeMillis());
+		this.startTime = System.nanoTime();
+		this.lastTime = startTime;
+		this.iterTime = 0;
+		this.iter = 0;
+	}
+	
+	// Return whether there is a deadline at all
+	public boolean isSet() {
+		return endTime != Long.MAX_VALUE;
+	}
+	
+	// Record the end of an iteration, and return whether the next one may not end
+	// before the deadline
+	public boolean tick() {
+		long time = System.nanoTime();
+		
+		iter++;
+		iterTime = iter == 1 ? time - lastTime : 0.9*iterTime + 0.1*(time - lastTime);
+		lastTime = time;
+		
+		return isSet() && time + ITERATION_SAFETY_FACTOR*iterTime >= endTime;
+	}
+	
+	// Return the fraction of the time between the creation and the deadline elapsed at
+	// the last tick, in [0, 1], or 0 if there is no deadline. A deadline already passed
+	// when it was created gives 1.
+	public double getProgress() {
+		if(!isSet())
+			return 0;
+		if(endTime <= startTime)
+			return 1;
+		
+		return Math.max(0, Math.min(1, (double) (lastTime - startTime)/(endTime - startTime)));
+	}
+	
+	// Return the number of iterations per second measured so far
+	public double getIterationsPerSecond() {
+		return iterTime == 0 ? 0 : 1e9/iterTime;
+	}
+}
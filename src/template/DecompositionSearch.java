@@ -0,0 +1,481 @@
+package template;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Class solving a large instance by decomposition. The fleet is split in clusters by
+// region: the start cities of vehicles far from each other are the centres of the
+// regions, and each vehicle belongs to the region of the closest centre. Each cluster
+// is an independent sub-instance, searched by its own stochastic local search on its
+// own thread, so that a move only considers the vehicles of its cluster and the time
+// of an iteration doesn't grow with the fleet.
+//
+// The search goes by rounds of roundMillis. At the first round each task goes to the
+// closest region where it fits, and each cluster builds its initial solution itself.
+// At the end of a round the best solutions of the clusters are put together, and a
+// boundary exchange moves the tasks which are close to another region to the vehicles
+// of that region when it lowers the cost. At the next round each cluster continues
+// with the tasks of its vehicles.
+public class DecompositionSearch {
+	// A task is on the boundary of another region if this region is at most this many
+	// times farther from the task than its own one
+	private static final double BOUNDARY_RATIO = 1.5;
+	private static final double IMPROVEMENT_EPSILON = 1e-9; // Smallest improvement of an
+	                                                        // exchange
+	
+	// Parameters
+	private final int numClusters;
+	private final long roundMillis; // Duration of the searches between two exchanges
+	private final double randomFactor; // Parameters of each cluster, see StochasticLocalSearch
+	private final int maxStagnationIter;
+	private final int maxLocalStagnationIter;
+	private final int pertubationSteps;
+	private ForkJoinPool pool; // Pool scoring the neighbours of every cluster, or null
+	private int tabuTenure;
+	private boolean polishMoves;
+	private NearestCities nearest; // Nearest cities of the whole instance, the clusters
+	                               // keeping its cities
+	private int escapeIter;
+	private Checkpointer checkpointer; // Writer of the whole solution, or null
+	
+	// Clusters of the last run
+	private Instance instance;
+	private int[] centres; // City at the centre of the region of each cluster
+	private int[] clusterOf; // Cluster of each vehicle
+	private int[][] clusterVehicles; // Vehicles of each cluster
+	
+	// State of the last run
+	private int rounds, totalIter, exchanges;
+	private SolverStats stats; // Telemetry of all clusters, the trace being the one of
+	                           // the whole solution at the end of each round
+	
+	public DecompositionSearch(int numClusters, long roundMillis, double randomFactor,
+			int maxStagnationIter, int maxLocalStagnationIter, int pertubationSteps) {
+		if(numClusters < 1)
+			throw new IllegalArgumentException("The decomposition needs at least one cluster");
+		
+		this.numClusters = numClusters;
+		this.roundMillis = roundMillis;
+		this.randomFactor = randomFactor;
+		this.maxStagnationIter = maxStagnationIter;
+		this.maxLocalStagnationIter = maxLocalStagnationIter;
+		this.pertubationSteps = pertubationSteps;
+	}
+	
+	// Set the options of the stochastic local search of each cluster, see the constructor,
+	// setPolishMoves and setGranular of StochasticLocalSearch. The pool is shared by all
+	// of them. By default there is no pool, no tabu, no polish and no granular
+	// neighbourhood.
+	public void setSearchOptions(ForkJoinPool pool, int tabuTenure, boolean polishMoves,
+			NearestCities nearest, int escapeIter) {
+		this.pool = pool;
+		this.tabuTenure = tabuTenure;
+		this.polishMoves = polishMoves;
+		this.nearest = nearest;
+		this.escapeIter = escapeIter;
+	}
+	
+	// Write the whole solution at the end of a round to the given checkpoint from time to
+	// time, see Checkpointer, or never if null
+	public void setCheckpointer(Checkpointer checkpointer) {
+		this.checkpointer = checkpointer;
+	}
+	
+	// Search the given instance until the deadline (in milliseconds), each cluster
+	// building its initial solution with the given heuristic and using its own split of
+	// the random generator. Without deadline, stop after the first round where no task
+	// changes cluster. Return the best solution found, or null if a cluster has no
+	// initial solution.
+	public Solution run(Instance instance, ConstructionHeuristic construction,
+			SplittableRandom random, long deadline) {
+		return this.run(instance, null, construction, random, deadline);
+	}
+	
+	// Same as above, the first round starting from the given solution if not null, each
+	// cluster taking the tasks of its vehicles as in the next rounds
+	public Solution run(Instance instance, Solution initSolution, ConstructionHeuristic construction,
+			SplittableRandom random, long deadline) {
+		this.instance = instance;
+		this.cluster();
+		
+		rounds = 0;
+		totalIter = 0;
+		exchanges = 0;
+		stats = new SolverStats();
+		stats.start();
+		
+		SplittableRandom[] randoms = new SplittableRandom[clusterVehicles.length];
+		for(int c = 0; c < randoms.length; c++) {
+			randoms[c] = random.split();
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(clusterVehicles.length);
+		Solution best = initSolution;
+		long exchangeMillis = 0; // Duration of the last exchange, kept before the deadline
+		
+		try {
+			while(true) {
+				long end = System.currentTimeMillis() + roundMillis;
+				if(deadline != Deadline.NONE)
+					end = Math.min(end, deadline - 2*exchangeMillis);
+				
+				Solution solution = this.solveClusters(executor, best, construction, randoms, end);
+				if(solution == null)
+					return null;
+				
+				long start = System.currentTimeMillis();
+				int moved = this.exchange(solution);
+				exchangeMillis = System.currentTimeMillis() - start;
+				exchanges += moved;
+				rounds++;
+				
+				best = solution;
+				stats.onBest(rounds, best.getCost());
+				
+				if(checkpointer != null && checkpointer.isDue(best.getCost()))
+					checkpointer.write(best);
+				
+				if(deadline == Deadline.NONE ? moved == 0
+						: System.currentTimeMillis() + 2*exchangeMillis >= deadline)
+					break;
+			}
+		}
+		catch(InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		}
+		catch(ExecutionException exc) {
+			throw new RuntimeException("A cluster failed", exc.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+			stats.stop();
+		}
+		
+		return best;
+	}
+	
+	// Return the number of clusters of the last run
+	public int getNumClusters() {
+		return clusterVehicles.length;
+	}
+	
+	// Return the number of rounds of the last run
+	public int getRounds() {
+		return rounds;
+	}
+	
+	// Return the number of iterations performed by all clusters during the last run
+	public int getTotalIter() {
+		return totalIter;
+	}
+	
+	// Return the number of tasks moved between clusters during the last run
+	public int getExchanges() {
+		return exchanges;
+	}
+	
+	// Return the telemetry of all clusters during the last run
+	public SolverStats getStats() {
+		return stats;
+	}
+	
+	// Choose the centres of the regions, as far from each other as possible among the
+	// start cities of the vehicles, and put each vehicle in the closest one
+	private void cluster() {
+		int numVehicles = instance.numVehicles;
+		int[] centreList = new int[Math.max(1, Math.min(numClusters, numVehicles))];
+		double[] distToCentres = new double[numVehicles]; // Distance to the closest centre
+		int count = 0;
+		
+		if(numVehicles > 0) {
+			centreList[count++] = instance.vehicleStart[0];
+			for(int v = 0; v < numVehicles; v++) {
+				distToCentres[v] = this.dist(instance.vehicleStart[0], instance.vehicleStart[v]);
+			}
+		}
+		
+		while(count > 0 && count < centreList.length) {
+			int farthest = 0;
+			for(int v = 1; v < numVehicles; v++) {
+				if(distToCentres[v] > distToCentres[farthest])
+					farthest = v;
+			}
+			
+			// Every start city is already a centre
+			if(distToCentres[farthest] == 0)
+				break;
+			
+			int centre = instance.vehicleStart[farthest];
+			centreList[count++] = centre;
+			for(int v = 0; v < numVehicles; v++) {
+				distToCentres[v] = Math.min(distToCentres[v], this.dist(centre, instance.vehicleStart[v]));
+			}
+		}
+		
+		this.centres = Arrays.copyOf(centreList, count);
+		this.clusterOf = new int[numVehicles];
+		int[] sizes = new int[count];
+		for(int v = 0; v < numVehicles; v++) {
+			clusterOf[v] = this.closestCentre(instance.vehicleStart[v]);
+			sizes[clusterOf[v]]++;
+		}
+		
+		this.clusterVehicles = new int[count][];
+		for(int c = 0; c < count; c++) {
+			clusterVehicles[c] = new int[sizes[c]];
+			sizes[c] = 0;
+		}
+		for(int v = 0; v < numVehicles; v++) {
+			clusterVehicles[clusterOf[v]][sizes[clusterOf[v]]++] = v;
+		}
+	}
+	
+	// Search every cluster on its own thread until the given time, from the tasks of its
+	// vehicles in the given solution, or from its region if it is null, and return the
+	// solution made of the best solutions of all clusters, or null if a cluster has no
+	// initial solution
+	private Solution solveClusters(ExecutorService executor, final Solution current,
+			final ConstructionHeuristic construction, final SplittableRandom[] randoms,
+			final long end) throws InterruptedException, ExecutionException {
+		final int[][] clusterTasks = current == null ? this.regionTasks() : this.vehicleTasks(current);
+		if(clusterTasks == null)
+			return null;
+		
+		// Index of each task in its cluster
+		final int[] localIndex = new int[instance.numTasks];
+		for(int c = 0; c < clusterTasks.length; c++) {
+			for(int k = 0; k < clusterTasks[c].length; k++) {
+				localIndex[clusterTasks[c][k]] = k;
+			}
+		}
+		
+		final Instance[] subInstances = new Instance[clusterTasks.length];
+		List<Future<Solution>> futures = new ArrayList<Future<Solution>>();
+		
+		for(int c = 0; c < clusterTasks.length; c++) {
+			final int cluster = c;
+			subInstances[c] = new Instance(instance, clusterTasks[c], clusterVehicles[c]);
+			
+			futures.add(executor.submit(new Callable<Solution>() {
+				@Override
+				public Solution call() {
+					Instance sub = subInstances[cluster];
+					Solution init;
+					if(current == null) {
+						init = construction.build(sub, randoms[cluster]);
+						if(init == null)
+							return null;
+					}
+					else {
+						init = new Solution(sub);
+						for(int v = 0; v < sub.numVehicles; v++) {
+							TaskList route = current.getTaskList(clusterVehicles[cluster][v]);
+							init.putRoute(v, mapRoute(route, localIndex), route.size());
+						}
+					}
+					
+					return searchCluster(init, randoms[cluster], end);
+				}
+			}));
+		}
+		
+		// Put the best solutions of the clusters together
+		Solution solution = new Solution(instance);
+		for(int c = 0; c < clusterTasks.length; c++) {
+			Solution sub = futures.get(c).get();
+			if(sub == null)
+				return null;
+			
+			for(int v = 0; v < sub.getInstance().numVehicles; v++) {
+				TaskList route = sub.getTaskList(v);
+				solution.putRoute(clusterVehicles[c][v], mapRoute(route, clusterTasks[c]), route.size());
+			}
+		}
+		
+		return solution;
+	}
+	
+	// Run the stochastic local search of a cluster until the given time, restarting from
+	// its best solution when it stagnates, and return this best solution
+	private Solution searchCluster(Solution init, SplittableRandom random, long end) {
+		StochasticLocalSearch sls = new StochasticLocalSearch(init, random, pool,
+				randomFactor, maxLocalStagnationIter, pertubationSteps, tabuTenure);
+		sls.setPolishMoves(polishMoves);
+		sls.setGranular(nearest, escapeIter);
+		Deadline clock = new Deadline(end);
+		
+		while(!Thread.currentThread().isInterrupted()) {
+			if(sls.getStagnationIter() >= maxStagnationIter)
+				sls.restartFromBest();
+			
+			if(!sls.step() || clock.tick())
+				break;
+		}
+		
+		sls.getStats().stop();
+		synchronized(this) {
+			totalIter += sls.getIter();
+			stats.add(sls.getStats());
+		}
+		
+		return sls.getBest();
+	}
+	
+	// Return the actions of the given route with each task replaced by its index in the
+	// given array
+	private static int[] mapRoute(TaskList route, int[] taskIndex) {
+		int[] actions = new int[route.size()];
+		
+		for(int k = 0; k < route.size(); k++) {
+			int action = route.action(k);
+			int task = taskIndex[Instance.taskOf(action)];
+			actions[k] = Instance.isPickUp(action) ? Instance.pickUp(task) : Instance.delivery(task);
+		}
+		
+		return actions;
+	}
+	
+	// Return the tasks of each cluster, each task going to the closest region where a
+	// vehicle can carry it, or null if a task fits in no vehicle
+	private int[][] regionTasks() {
+		int[] taskCluster = new int[instance.numTasks];
+		int[] sizes = new int[clusterVehicles.length];
+		
+		for(int t = 0; t < instance.numTasks; t++) {
+			int best = -1;
+			
+			for(int c = 0; c < clusterVehicles.length; c++) {
+				if(best >= 0 && this.distToTask(c, t) >= this.distToTask(best, t))
+					continue;
+				
+				for(int v : clusterVehicles[c]) {
+					if(instance.fits(t, v)) {
+						best = c;
+						break;
+					}
+				}
+			}
+			
+			if(best < 0)
+				return null;
+			taskCluster[t] = best;
+			sizes[best]++;
+		}
+		
+		return group(taskCluster, sizes);
+	}
+	
+	// Return the tasks of each cluster, i.e. the ones of its vehicles in the solution
+	private int[][] vehicleTasks(Solution solution) {
+		int[] taskCluster = new int[instance.numTasks];
+		int[] sizes = new int[clusterVehicles.length];
+		
+		for(int t = 0; t < instance.numTasks; t++) {
+			taskCluster[t] = clusterOf[solution.vehicleOf(t)];
+			sizes[taskCluster[t]]++;
+		}
+		
+		return group(taskCluster, sizes);
+	}
+	
+	// Return the tasks of each cluster, given the cluster of each task and their numbers
+	private static int[][] group(int[] taskCluster, int[] sizes) {
+		int[][] clusterTasks = new int[sizes.length][];
+		for(int c = 0; c < sizes.length; c++) {
+			clusterTasks[c] = new int[sizes[c]];
+			sizes[c] = 0;
+		}
+		
+		for(int t = 0; t < taskCluster.length; t++) {
+			clusterTasks[taskCluster[t]][sizes[taskCluster[t]]++] = t;
+		}
+		
+		return clusterTasks;
+	}
+	
+	// Move each task on the boundary with another region to its cheapest place in the
+	// vehicles of that region, if this lowers the cost. Return the number of tasks moved.
+	private int exchange(Solution solution) {
+		int moved = 0;
+		
+		for(int t = 0; t < instance.numTasks; t++) {
+			int v1 = solution.vehicleOf(t);
+			int own = clusterOf[v1];
+			int other = -1;
+			for(int c = 0; c < centres.length; c++) {
+				if(c != own && (other < 0 || this.distToTask(c, t) < this.distToTask(other, t)))
+					other = c;
+			}
+			
+			if(other < 0 || this.distToTask(other, t) > BOUNDARY_RATIO*this.distToTask(own, t))
+				continue;
+			
+			TaskList v1TaskList = solution.getTaskList(v1);
+			double removalDelta = instance.vehicleCostPerKm[v1]*v1TaskList.removalDelta(
+					v1TaskList.indexOf(Instance.pickUp(t)), v1TaskList.indexOf(Instance.delivery(t)));
+			
+			// Cheapest insertion in the vehicles of the other region
+			double best = -removalDelta - IMPROVEMENT_EPSILON;
+			int bestVehicle = -1, bestPickUp = -1, bestDelivery = -1;
+			for(int v2 : clusterVehicles[other]) {
+				TaskList taskList = solution.getTaskList(v2);
+				double costPerKm = instance.vehicleCostPerKm[v2];
+				
+				for(int i = 0; i < taskList.size() + 1; i++) {
+					int last = taskList.lastDeliverOrder(t, i);
+					
+					for(int j = i + 1; j <= last; j++) {
+						if(!taskList.canDeliverAt(t, i, j))
+							continue;
+						
+						double delta = costPerKm*taskList.insertionDelta(t, i, j);
+						if(delta < best) {
+							best = delta;
+							bestVehicle = v2;
+							bestPickUp = i;
+							bestDelivery = j;
+						}
+					}
+				}
+			}
+			
+			if(bestVehicle >= 0) {
+				solution.applyMove(t, bestVehicle, bestPickUp, bestDelivery);
+				moved++;
+			}
+		}
+		
+		return moved;
+	}
+	
+	// Return the cluster whose centre is the closest to the given city
+	private int closestCentre(int city) {
+		int best = 0;
+		
+		for(int c = 1; c < centres.length; c++) {
+			if(this.dist(centres[c], city) < this.dist(centres[best], city))
+				best = c;
+		}
+		
+		return best;
+	}
+	
+	// Return the distance from the centre of the given cluster to the pickup and the
+	// delivery of the given task
+	private double distToTask(int cluster, int task) {
+		return this.dist(centres[cluster], instance.actionCity[Instance.pickUp(task)])
+				+ this.dist(centres[cluster], instance.actionCity[Instance.delivery(task)]);
+	}
+	
+	private double dist(int from, int to) {
+		return instance.distances.get(from, to);
+	}
+}
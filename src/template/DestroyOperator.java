@@ -0,0 +1,11 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Interface of the operators removing tasks from a solution in a large neighbourhood
+// search
+public interface DestroyOperator {
+	// Remove up to count tasks from the given solution, and write them at the start of
+	// removed. Return the number of tasks removed.
+	int destroy(Solution solution, int count, SplittableRandom random, int[] removed);
+}
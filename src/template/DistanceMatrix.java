@@ -0,0 +1,173 @@
+package template;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import logist.plan.Plan;
+import logist.topology.Topology;
+import logist.topology.Topology.City;
+
+// Class holding the distance between each pair of cities in a flat array, so that the
+// solver never has to call City.distanceTo. Cities are identified by their id.
+//
+// It also holds the first hop of a shortest path between each pair of cities, so that
+// the plans are built without searching the graph again for every move: the path from
+// i to j is i, then nextHop(i, j), then nextHop(nextHop(i, j), j), and so on.
+public class DistanceMatrix {
+	public final int numCities;
+	private final double[] distances; // Distance from city i to city j at i*numCities + j
+	private final City[] cities; // City corresponding to each id, null if not built from a topology
+	private final short[] nextHops; // Neighbour of city i on a shortest path to city j at
+	                                // i*numCities + j, -1 if none, or null without topology
+	
+	// Compute the matrix once from the topology
+	public DistanceMatrix(Topology topology) {
+		List<City> cityList = topology.cities();
+		
+		this.numCities = cityList.size();
+		if(numCities > Short.MAX_VALUE)
+			throw new IllegalArgumentException("Too many cities: " + numCities);
+		
+		this.distances = new double[numCities*numCities];
+		this.cities = new City[numCities];
+		
+		for(City c : cityList) {
+			this.cities[c.id] = c;
+		}
+		
+		for(int i = 0; i < numCities; i++) {
+			for(int j = 0; j < numCities; j++) {
+				this.distances[i*numCities + j] = cities[i].distanceTo(cities[j]);
+			}
+		}
+		
+		// Neighbours of each city and length of the road to them
+		int[][] neighbours = new int[numCities][];
+		double[][] roads = new double[numCities][];
+		for(int i = 0; i < numCities; i++) {
+			List<City> list = cities[i].neighbors();
+			neighbours[i] = new int[list.size()];
+			roads[i] = new double[list.size()];
+			
+			for(int n = 0; n < list.size(); n++) {
+				neighbours[i][n] = list.get(n).id;
+				roads[i][n] = cities[i].distanceTo(list.get(n));
+			}
+		}
+		this.nextHops = computeNextHops(neighbours, roads, null);
+	}
+	
+	// Compute the matrix from the roads between the cities, without any topology behind
+	// it: roads[i][n] is the length of the road from city i to city neighbours[i][n].
+	// The distances are the lengths of the shortest paths.
+	public DistanceMatrix(int[][] neighbours, double[][] roads) {
+		this.numCities = neighbours.length;
+		if(numCities > Short.MAX_VALUE)
+			throw new IllegalArgumentException("Too many cities: " + numCities);
+		
+		this.distances = new double[numCities*numCities];
+		this.cities = null;
+		this.nextHops = computeNextHops(neighbours, roads, distances);
+	}
+	
+	// Create a matrix from raw distances, without any topology behind it
+	public DistanceMatrix(int numCities, double[] distances) {
+		if(distances.length != numCities*numCities)
+			throw new IllegalArgumentException("Expected " + numCities*numCities + " distances");
+		
+		this.numCities = numCities;
+		this.distances = distances;
+		this.cities = null;
+		this.nextHops = null;
+	}
+	
+	// Return the distance between the two given cities
+	public double get(int from, int to) {
+		return distances[from*numCities + to];
+	}
+	
+	// Return the city with the given id
+	public City city(int id) {
+		return cities[id];
+	}
+	
+	// Return the neighbour of the first city on a shortest path to the second one, or -1
+	// if they are the same city or the second one can't be reached
+	public int nextHop(int from, int to) {
+		return nextHops[from*numCities + to];
+	}
+	
+	// Append the moves of a shortest path between the two given cities to the plan.
+	// Throw an IllegalStateException if the second one can't be reached.
+	public void appendPath(Plan plan, int from, int to) {
+		for(int c = from; c != to; c = nextHops[c*numCities + to]) {
+			int next = nextHops[c*numCities + to];
+			if(next < 0)
+				throw new IllegalStateException("No path from " + cities[from] + " to " + cities[to]);
+			
+			plan.appendMove(cities[next]);
+		}
+	}
+	
+	// Compute the first hop of the shortest paths from every city with Dijkstra's
+	// algorithm on the given roads. The lengths of the paths are put in distances, if
+	// not null, infinite for the cities which can't be reached.
+	private static short[] computeNextHops(int[][] neighbours, double[][] roads, double[] distances) {
+		int numCities = neighbours.length;
+		
+		short[] nextHops = new short[numCities*numCities];
+		Arrays.fill(nextHops, (short) -1);
+		double[] dist = new double[numCities];
+		boolean[] done = new boolean[numCities];
+		PriorityQueue<Node> queue = new PriorityQueue<Node>();
+		
+		for(int source = 0; source < numCities; source++) {
+			int row = source*numCities;
+			Arrays.fill(dist, Double.POSITIVE_INFINITY);
+			Arrays.fill(done, false);
+			dist[source] = 0;
+			queue.add(new Node(source, 0));
+			
+			while(!queue.isEmpty()) {
+				int c = queue.poll().city;
+				if(done[c])
+					continue;
+				done[c] = true;
+				
+				for(int n = 0; n < neighbours[c].length; n++) {
+					int next = neighbours[c][n];
+					double d = dist[c] + roads[c][n];
+					
+					if(d < dist[next]) {
+						dist[next] = d;
+						nextHops[row + next] = c == source ? (short) next : nextHops[row + c];
+						queue.add(new Node(next, d));
+					}
+				}
+			}
+			
+			nextHops[row + source] = -1;
+			if(distances != null)
+				System.arraycopy(dist, 0, distances, row, numCities);
+		}
+		
+		return nextHops;
+	}
+	
+	// City in the queue of Dijkstra's algorithm, with its distance when it was added
+	private static class Node implements Comparable<Node> {
+		final int city;
+		final double dist;
+		
+		Node(int city, double dist) {
+			this.city = city;
+			this.dist = dist;
+		}
+		
+		@Override
+		public int compareTo(Node other) {
+			return Double.compare(dist, other.dist);
+		}
+	}
+}
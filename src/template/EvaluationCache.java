@@ -0,0 +1,121 @@
+package template;
+
+// Bounded cache of evaluations keyed by a 64-bit hash, e.g. the hash of a route (see
+// TaskList) mixed with what is evaluated on it. Each entry holds a value and an int of
+// data. The cache is set associative: a key can only go in the WAYS slots of its set,
+// and when they are all taken the victim is chosen by the CLOCK algorithm within the
+// set, which approximates LRU with one reference bit per slot. Everything is stored in
+// primitive arrays, so neither a lookup nor an insertion allocates.
+public class EvaluationCache {
+	private static final int WAYS = 4;
+	
+	private final long[] keys;
+	private final double[] values;
+	private final int[] data;
+	private final boolean[] filled; // Whether each slot holds an entry
+	private final boolean[] referenced; // Whether each entry was used since the clock
+	                                    // hand last passed it
+	private final byte[] hands; // Clock hand of each set
+	private final int setMask;
+	
+	private long hits, misses, evictions;
+	
+	// Create a cache of at least the given number of entries, rounded up to a power of two
+	public EvaluationCache(int capacity) {
+		int sets = Integer.highestOneBit(Math.max(1, (capacity - 1)/WAYS)) << 1;
+		
+		this.keys = new long[sets*WAYS];
+		this.values = new double[sets*WAYS];
+		this.data = new int[sets*WAYS];
+		this.filled = new boolean[sets*WAYS];
+		this.referenced = new boolean[sets*WAYS];
+		this.hands = new byte[sets];
+		this.setMask = sets - 1;
+	}
+	
+	// Return the slot of the given key, or -1 if it is not in the cache
+	public int find(long key) {
+		int first = this.set(key)*WAYS;
+		
+		for(int slot = first; slot < first + WAYS; slot++) {
+			if(filled[slot] && keys[slot] == key) {
+				referenced[slot] = true;
+				hits++;
+				return slot;
+			}
+		}
+		
+		misses++;
+		return -1;
+	}
+	
+	public double getValue(int slot) {
+		return values[slot];
+	}
+	
+	public int getData(int slot) {
+		return data[slot];
+	}
+	
+	// Add an entry which is not in the cache, evicting another one of its set if needed
+	public void put(long key, double value, int data) {
+		int set = this.set(key);
+		int first = set*WAYS;
+		int slot = -1;
+		
+		for(int s = first; s < first + WAYS && slot < 0; s++) {
+			if(!filled[s])
+				slot = s;
+		}
+		
+		// Every slot is taken, move the hand until an entry not referenced since its last
+		// pass, clearing the reference bits on the way
+		if(slot < 0) {
+			int hand = hands[set];
+			while(referenced[first + hand]) {
+				referenced[first + hand] = false;
+				hand = (hand + 1) % WAYS;
+			}
+			slot = first + hand;
+			hands[set] = (byte) ((hand + 1) % WAYS);
+			evictions++;
+		}
+		
+		keys[slot] = key;
+		values[slot] = value;
+		this.data[slot] = data;
+		filled[slot] = true;
+		referenced[slot] = false;
+	}
+	
+	public long getHits() {
+		return hits;
+	}
+	
+	public long getMisses() {
+		return misses;
+	}
+	
+	public long getEvictions() {
+		return evictions;
+	}
+	
+	// Return the fraction of the lookups which found their key
+	public double getHitRate() {
+		return hits + misses > 0 ? (double) hits/(hits + misses) : 0;
+	}
+	
+	public int getCapacity() {
+		return keys.length;
+	}
+	
+	@Override
+	public String toString() {
+		return keys.length + " entries, " + hits + " hits, " + misses + " misses ("
+				+ Math.round(100*this.getHitRate()) + "% hit rate), " + evictions + " evictions";
+	}
+	
+	private int set(long key) {
+		return (int) (key ^ (key >>> 32)) & setMask;
+	}
+}
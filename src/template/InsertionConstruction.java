@@ -0,0 +1,34 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Initial solution built by inserting every task into empty vehicles, see
+// InsertionHeuristic. The result doesn't depend on the random generator.
+public class InsertionConstruction implements ConstructionHeuristic {
+	private final InsertionHeuristic heuristic;
+	
+	// k is the number of vehicles of the regret, 1 for the cheapest insertion
+	public InsertionConstruction(int k) {
+		this.heuristic = new InsertionHeuristic(k);
+	}
+	
+	@Override
+	public Solution build(Instance instance, SplittableRandom random) {
+		Solution solution = new Solution(instance);
+		
+		int[] tasks = new int[instance.numTasks];
+		for(int t = 0; t < tasks.length; t++) {
+			tasks[t] = t;
+		}
+		
+		if(!heuristic.insertAll(solution, tasks, tasks.length))
+			return null;
+		
+		return solution;
+	}
+	
+	@Override
+	public String toString() {
+		return heuristic.getK() == 1 ? "cheapest" : "regret-" + heuristic.getK();
+	}
+}
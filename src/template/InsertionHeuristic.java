@@ -0,0 +1,191 @@
+package template;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Greedy insertion of tasks into a partial solution, all vehicles being filled in
+// parallel. At each step every remaining task is scored by its cheapest feasible
+// insertion in each vehicle, and the task with the highest regret is inserted at its
+// cheapest place. The regret of a task is the sum of the differences between its
+// cheapest insertion and its k - 1 next cheapest ones in other vehicles, so with k = 1
+// this is the cheapest insertion heuristic, and with k > 1 the tasks which would lose
+// the most by waiting go first. Only the column of the vehicle which received the last
+// task is scored again at each step. It is also the repair operator of the large
+// neighbourhood search.
+//
+// The cheapest insertion of a task in a vehicle only depends on the route of the
+// vehicle, so it can be kept in an EvaluationCache keyed by the hash of the route. A
+// large neighbourhood search leaves most routes untouched from one iteration to the
+// next, and scores the same tasks on them again and again.
+public class InsertionHeuristic implements RepairOperator {
+	private final int k; // Number of vehicles the regret is computed over
+	private final EvaluationCache cache; // Cheapest insertions already computed, or null
+	
+	public InsertionHeuristic(int k) {
+		this(k, null);
+	}
+	
+	// The cache may be shared by several heuristics of the same instance
+	public InsertionHeuristic(int k, EvaluationCache cache) {
+		if(k < 1)
+			throw new IllegalArgumentException("The regret needs at least one vehicle");
+		
+		this.k = k;
+		this.cache = cache;
+	}
+	
+	public int getK() {
+		return k;
+	}
+	
+	// Insert the first count tasks of the given array, which no vehicle is in charge of,
+	// into the given solution. Return false if a task fits in no vehicle, in which case
+	// the tasks inserted so far are kept.
+	public boolean insertAll(Solution solution, int[] tasks, int count) {
+		Instance instance = solution.getInstance();
+		int numVehicles = instance.numVehicles;
+		
+		// Cheapest insertion of each remaining task in each vehicle, the remaining
+		// tasks being the first count ones
+		int[] remaining = new int[count];
+		System.arraycopy(tasks, 0, remaining, 0, count);
+		double[] insertionCost = new double[count*numVehicles];
+		int[] pickUpOrder = new int[count*numVehicles];
+		int[] deliverOrder = new int[count*numVehicles];
+		
+		for(int v = 0; v < numVehicles; v++) {
+			this.scoreVehicle(solution, v, remaining, count, insertionCost, pickUpOrder, deliverOrder);
+		}
+		
+		double[] smallest = new double[k]; // k cheapest insertions of a task
+		
+		while(count > 0) {
+			// Task with the highest regret, the cheapest one among equal regrets
+			int bestRow = -1, bestVehicle = -1;
+			double bestRegret = Double.NEGATIVE_INFINITY, bestCost = Double.POSITIVE_INFINITY;
+			
+			for(int r = 0; r < count; r++) {
+				int cheapestVehicle = this.kSmallest(insertionCost, r*numVehicles, numVehicles, smallest);
+				if(cheapestVehicle < 0)
+					return false;
+				
+				double regret = 0;
+				for(int h = 1; h < k; h++) {
+					regret += smallest[h] - smallest[0];
+				}
+				
+				if(regret > bestRegret || (regret == bestRegret && smallest[0] < bestCost)) {
+					bestRegret = regret;
+					bestCost = smallest[0];
+					bestRow = r;
+					bestVehicle = cheapestVehicle;
+				}
+			}
+			
+			int cell = bestRow*numVehicles + bestVehicle;
+			solution.insertTask(remaining[bestRow], bestVehicle, pickUpOrder[cell], deliverOrder[cell]);
+			
+			// Move the last row in place of the inserted one
+			count--;
+			remaining[bestRow] = remaining[count];
+			System.arraycopy(insertionCost, count*numVehicles, insertionCost, bestRow*numVehicles, numVehicles);
+			System.arraycopy(pickUpOrder, count*numVehicles, pickUpOrder, bestRow*numVehicles, numVehicles);
+			System.arraycopy(deliverOrder, count*numVehicles, deliverOrder, bestRow*numVehicles, numVehicles);
+			
+			this.scoreVehicle(solution, bestVehicle, remaining, count, insertionCost, pickUpOrder, deliverOrder);
+		}
+		
+		return true;
+	}
+	
+	@Override
+	public boolean repair(Solution solution, int[] tasks, int count, SplittableRandom random) {
+		return this.insertAll(solution, tasks, count);
+	}
+	
+	@Override
+	public String toString() {
+		return k == 1 ? "greedy" : "regret-" + k;
+	}
+	
+	// Compute the cheapest feasible insertion of each remaining task in the given vehicle
+	private void scoreVehicle(Solution solution, int vehicle, int[] remaining, int count,
+			double[] insertionCost, int[] pickUpOrder, int[] deliverOrder) {
+		Instance instance = solution.getInstance();
+		TaskList taskList = solution.getTaskList(vehicle);
+		double costPerKm = instance.vehicleCostPerKm[vehicle];
+		
+		for(int r = 0; r < count; r++) {
+			int task = remaining[r];
+			int cell = r*instance.numVehicles + vehicle;
+			double best = Double.POSITIVE_INFINITY;
+			
+			long key = 0;
+			if(cache != null) {
+				key = cacheKey(taskList.getHash(), vehicle, task);
+				int slot = cache.find(key);
+				
+				if(slot >= 0) {
+					insertionCost[cell] = cache.getValue(slot);
+					pickUpOrder[cell] = cache.getData(slot) >>> 16;
+					deliverOrder[cell] = cache.getData(slot) & 0xffff;
+					continue;
+				}
+			}
+			
+			for(int i = 0; i < taskList.size() + 1; i++) {
+				int last = taskList.lastDeliverOrder(task, i);
+				
+				for(int j = i + 1; j <= last; j++) {
+					if(!taskList.canDeliverAt(task, i, j))
+						continue;
+					
+					double delta = costPerKm*taskList.insertionDelta(task, i, j);
+					
+					if(delta < best) {
+						best = delta;
+						pickUpOrder[cell] = i;
+						deliverOrder[cell] = j;
+					}
+				}
+			}
+			
+			insertionCost[cell] = best;
+			if(cache != null)
+				cache.put(key, best, pickUpOrder[cell] << 16 | deliverOrder[cell]);
+		}
+	}
+	
+	// Return the key of the insertion of a task in the route of the given hash and
+	// vehicle. Empty routes have the same hash, hence the vehicle.
+	private static long cacheKey(long routeHash, int vehicle, int task) {
+		return routeHash ^ TaskList.edgeKey(vehicle, -2, task);
+	}
+	
+	// Put the k smallest values of the given row in smallest, in increasing order, and
+	// return the index in the row of the smallest one, or -1 if they are all infinite.
+	// Missing values are infinite.
+	private int kSmallest(double[] values, int offset, int length, double[] smallest) {
+		Arrays.fill(smallest, Double.POSITIVE_INFINITY);
+		int argMin = -1;
+		
+		for(int v = 0; v < length; v++) {
+			double value = values[offset + v];
+			if(value >= smallest[k - 1])
+				continue;
+			
+			// Insertion sort into the k smallest values
+			int h = k - 1;
+			while(h > 0 && smallest[h - 1] > value) {
+				smallest[h] = smallest[h - 1];
+				h--;
+			}
+			smallest[h] = value;
+			
+			if(h == 0)
+				argMin = v;
+		}
+		
+		return argMin;
+	}
+}
@@ -0,0 +1,228 @@
+package template;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import logist.simulation.Vehicle;
+import logist.task.Task;
+
+// Class holding a pickup and delivery problem in primitive arrays. Tasks and vehicles
+// are identified by their index. Each task t has two actions, its pickup with code 2*t
+// and its delivery with code 2*t + 1, and the per action data is indexed by this code.
+//
+// Besides the weight, the tasks may have sizes in other capacity dimensions, e.g. a
+// volume, each with its own capacity per vehicle. The service of each action may also
+// have to start within a time window, the travel time between two cities being their
+// distance. A simulation only gives the weight, without time windows.
+public class Instance {
+	public final DistanceMatrix distances;
+	
+	public final int numTasks;
+	public final int[] actionCity; // City where each action takes place
+	public final int[] actionLoad; // Change of load of each action, the weight of the task
+	                               // for a pickup and its opposite for a delivery
+	
+	public final int numDimensions; // Number of capacity dimensions, the first one is the weight
+	public final int[][] actionLoads; // Change of load of each action in each dimension,
+	                                  // actionLoads[0] is actionLoad
+	
+	// Time windows, by action code: the service of an action can't start before its
+	// earliest time, the vehicle waits if it arrives earlier, nor after its latest time,
+	// and it lasts its service time. Without time windows they are 0, infinite and 0.
+	public final boolean hasTimeWindows;
+	public final double[] actionEarliest, actionLatest, actionService;
+	
+	public final int numVehicles;
+	public final int[] vehicleStart; // City from which each vehicle starts
+	public final int[] vehicleCapacity;
+	public final int[][] vehicleCapacities; // Capacity of each vehicle in each dimension,
+	                                        // vehicleCapacities[0] is vehicleCapacity
+	public final double[] vehicleCostPerKm;
+	
+	// Logist objects the indexes correspond to, null if the instance was not built
+	// from a simulation. Only needed to build the plans.
+	public final Task[] tasks;
+	public final Vehicle[] vehicles;
+	
+	// Build the instance of a simulation
+	public Instance(DistanceMatrix distances, List<Vehicle> vehicles, Collection<Task> tasks) {
+		this.distances = distances;
+		this.tasks = tasks.toArray(new Task[tasks.size()]);
+		this.vehicles = vehicles.toArray(new Vehicle[vehicles.size()]);
+		
+		this.numTasks = this.tasks.length;
+		this.actionCity = new int[2*numTasks];
+		this.actionLoad = new int[2*numTasks];
+		for(int t = 0; t < numTasks; t++) {
+			Task task = this.tasks[t];
+			
+			actionCity[pickUp(t)] = task.pickupCity.id;
+			actionCity[delivery(t)] = task.deliveryCity.id;
+			actionLoad[pickUp(t)] = task.weight;
+			actionLoad[delivery(t)] = -task.weight;
+		}
+		
+		this.numVehicles = this.vehicles.length;
+		this.vehicleStart = new int[numVehicles];
+		this.vehicleCapacity = new int[numVehicles];
+		this.vehicleCostPerKm = new double[numVehicles];
+		for(int v = 0; v < numVehicles; v++) {
+			Vehicle vehicle = this.vehicles[v];
+			
+			vehicleStart[v] = vehicle.getCurrentCity().id;
+			vehicleCapacity[v] = vehicle.capacity();
+			vehicleCostPerKm[v] = vehicle.costPerKm();
+		}
+		
+		this.numDimensions = 1;
+		this.actionLoads = new int[][] { actionLoad };
+		this.vehicleCapacities = new int[][] { vehicleCapacity };
+		this.hasTimeWindows = false;
+		this.actionEarliest = new double[2*numTasks];
+		this.actionLatest = new double[2*numTasks];
+		this.actionService = new double[2*numTasks];
+		Arrays.fill(actionLatest, Double.POSITIVE_INFINITY);
+	}
+	
+	// Build an instance from raw data, without any simulation behind it
+	public Instance(DistanceMatrix distances, int[] pickupCity, int[] deliveryCity,
+			int[] weight, int[] vehicleStart, int[] vehicleCapacity, double[] vehicleCostPerKm) {
+		this(distances, pickupCity, deliveryCity, new int[][] { weight }, vehicleStart,
+				new int[][] { vehicleCapacity }, vehicleCostPerKm, null, null, null);
+	}
+	
+	// Build an instance from raw data with several capacity dimensions and time windows.
+	// weights[d][t] is the size of the t-th task in the d-th dimension and
+	// capacities[d][v] the capacity of the v-th vehicle in it. earliest, latest and
+	// service are indexed by action code, and are all null for no time windows.
+	public Instance(DistanceMatrix distances, int[] pickupCity, int[] deliveryCity,
+			int[][] weights, int[] vehicleStart, int[][] capacities, double[] vehicleCostPerKm,
+			double[] earliest, double[] latest, double[] service) {
+		if(weights.length == 0 || weights.length != capacities.length)
+			throw new IllegalArgumentException("Expected as many weights as capacities");
+		
+		this.distances = distances;
+		this.tasks = null;
+		this.vehicles = null;
+		
+		this.numTasks = pickupCity.length;
+		this.numDimensions = weights.length;
+		this.actionCity = new int[2*numTasks];
+		this.actionLoads = new int[numDimensions][2*numTasks];
+		for(int t = 0; t < numTasks; t++) {
+			actionCity[pickUp(t)] = pickupCity[t];
+			actionCity[delivery(t)] = deliveryCity[t];
+			
+			for(int d = 0; d < numDimensions; d++) {
+				actionLoads[d][pickUp(t)] = weights[d][t];
+				actionLoads[d][delivery(t)] = -weights[d][t];
+			}
+		}
+		this.actionLoad = actionLoads[0];
+		
+		this.numVehicles = vehicleStart.length;
+		this.vehicleStart = vehicleStart;
+		this.vehicleCapacities = capacities;
+		this.vehicleCapacity = capacities[0];
+		this.vehicleCostPerKm = vehicleCostPerKm;
+		
+		this.hasTimeWindows = earliest != null;
+		if(hasTimeWindows) {
+			this.actionEarliest = earliest;
+			this.actionLatest = latest;
+			this.actionService = service;
+		}
+		else {
+			this.actionEarliest = new double[2*numTasks];
+			this.actionLatest = new double[2*numTasks];
+			this.actionService = new double[2*numTasks];
+			Arrays.fill(actionLatest, Double.POSITIVE_INFINITY);
+		}
+	}
+	
+	// Return the weight of the t-th task
+	public int weight(int t) {
+		return actionLoad[pickUp(t)];
+	}
+	
+	// Build the sub-instance of the given tasks and vehicles of another instance, the
+	// k-th task or vehicle of the sub-instance being the k-th given one
+	public Instance(Instance instance, int[] tasks, int[] vehicles) {
+		this.distances = instance.distances;
+		this.tasks = instance.tasks == null ? null : new Task[tasks.length];
+		this.vehicles = instance.vehicles == null ? null : new Vehicle[vehicles.length];
+		
+		this.numTasks = tasks.length;
+		this.numDimensions = instance.numDimensions;
+		this.actionCity = new int[2*numTasks];
+		this.actionLoads = new int[numDimensions][2*numTasks];
+		this.hasTimeWindows = instance.hasTimeWindows;
+		this.actionEarliest = new double[2*numTasks];
+		this.actionLatest = new double[2*numTasks];
+		this.actionService = new double[2*numTasks];
+		for(int t = 0; t < numTasks; t++) {
+			if(this.tasks != null)
+				this.tasks[t] = instance.tasks[tasks[t]];
+			
+			for(int a = pickUp(t); a <= delivery(t); a++) {
+				int action = a - pickUp(t) + pickUp(tasks[t]);
+				
+				actionCity[a] = instance.actionCity[action];
+				for(int d = 0; d < numDimensions; d++) {
+					actionLoads[d][a] = instance.actionLoads[d][action];
+				}
+				actionEarliest[a] = instance.actionEarliest[action];
+				actionLatest[a] = instance.actionLatest[action];
+				actionService[a] = instance.actionService[action];
+			}
+		}
+		this.actionLoad = actionLoads[0];
+		
+		this.numVehicles = vehicles.length;
+		this.vehicleStart = new int[numVehicles];
+		this.vehicleCapacities = new int[numDimensions][numVehicles];
+		this.vehicleCostPerKm = new double[numVehicles];
+		for(int v = 0; v < numVehicles; v++) {
+			if(this.vehicles != null)
+				this.vehicles[v] = instance.vehicles[vehicles[v]];
+			
+			vehicleStart[v] = instance.vehicleStart[vehicles[v]];
+			for(int d = 0; d < numDimensions; d++) {
+				vehicleCapacities[d][v] = instance.vehicleCapacities[d][vehicles[v]];
+			}
+			vehicleCostPerKm[v] = instance.vehicleCostPerKm[vehicles[v]];
+		}
+		this.vehicleCapacity = vehicleCapacities[0];
+	}
+	
+	// Return whether the t-th task alone fits in the v-th vehicle, in every dimension
+	public boolean fits(int t, int v) {
+		for(int d = 0; d < numDimensions; d++) {
+			if(actionLoads[d][pickUp(t)] > vehicleCapacities[d][v])
+				return false;
+		}
+		
+		return true;
+	}
+	
+	// Return the code of the pickup of the t-th task
+	public static int pickUp(int t) {
+		return 2*t;
+	}
+	
+	// Return the code of the delivery of the t-th task
+	public static int delivery(int t) {
+		return 2*t + 1;
+	}
+	
+	// Return the task of the given action
+	public static int taskOf(int action) {
+		return action >> 1;
+	}
+	
+	// Return whether the given action is a pickup
+	public static boolean isPickUp(int action) {
+		return (action & 1) == 0;
+	}
+}
@@ -0,0 +1,218 @@
+package template;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Reader of instances stored in text files, for solving them without any simulation,
+// e.g. with the BatchRunner. There is one statement per line, the words are separated
+// by spaces and everything after a # is a comment:
+//
+//   cities <number of cities>
+//   road <city> <city> <length>
+//   dimensions <number of capacity dimensions>
+//   time-windows
+//   vehicle <home city> <cost per km> <capacity in each dimension>
+//   task <pickup city> <delivery city> <weight in each dimension> [<pickup earliest>
+//        <pickup latest> <pickup service> <delivery earliest> <delivery latest>
+//        <delivery service>]
+//
+// Cities are numbered from 0, and the roads go both ways as in the topologies of logist:
+// the distance between two cities is the length of the shortest path between them.
+// cities comes first, then dimensions (1 by default) and time-windows (none by default)
+// before any vehicle or task. With time-windows every task has its 6 time values.
+public class InstanceReader {
+	public static Instance read(File file) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			return read(reader, file.getName());
+		}
+		finally {
+			reader.close();
+		}
+	}
+	
+	// Read an instance, name being used in the error messages
+	public static Instance read(BufferedReader reader, String name) throws IOException {
+		int numCities = -1;
+		int numDimensions = 1;
+		boolean timeWindows = false;
+		List<List<double[]>> roads = null; // Neighbour and length of the roads of each city
+		List<int[]> vehicles = new ArrayList<int[]>(); // Home city, then capacities
+		List<Double> costs = new ArrayList<Double>(); // Cost per km of each vehicle
+		List<int[]> tasks = new ArrayList<int[]>(); // Pickup and delivery city, then weights
+		List<double[]> times = new ArrayList<double[]>(); // Time values of each task
+		
+		String line;
+		for(int lineNumber = 1; (line = reader.readLine()) != null; lineNumber++) {
+			int comment = line.indexOf('#');
+			if(comment >= 0)
+				line = line.substring(0, comment);
+			line = line.trim();
+			if(line.isEmpty())
+				continue;
+			
+			String[] words = line.split("\\s+");
+			String where = name + ":" + lineNumber + ": ";
+			
+			try {
+				if(!words[0].equals("cities") && numCities < 0)
+					throw new IOException(where + "expected the number of cities first");
+				
+				if(words[0].equals("cities")) {
+					checkLength(words, 2, where);
+					if(numCities >= 0)
+						throw new IOException(where + "the number of cities is already set");
+					numCities = Integer.parseInt(words[1]);
+					if(numCities < 1)
+						throw new IOException(where + "expected at least one city");
+					
+					roads = new ArrayList<List<double[]>>();
+					for(int c = 0; c < numCities; c++) {
+						roads.add(new ArrayList<double[]>());
+					}
+				}
+				else if(words[0].equals("road")) {
+					checkLength(words, 4, where);
+					int from = city(words[1], numCities, where), to = city(words[2], numCities, where);
+					double length = Double.parseDouble(words[3]);
+					
+					roads.get(from).add(new double[] { to, length });
+					roads.get(to).add(new double[] { from, length });
+				}
+				else if(words[0].equals("dimensions") || words[0].equals("time-windows")) {
+					if(!vehicles.isEmpty() || !tasks.isEmpty())
+						throw new IOException(where + words[0] + " must come before the vehicles and tasks");
+					
+					if(words[0].equals("dimensions")) {
+						checkLength(words, 2, where);
+						numDimensions = Integer.parseInt(words[1]);
+						if(numDimensions < 1)
+							throw new IOException(where + "expected at least one dimension");
+					}
+					else {
+						checkLength(words, 1, where);
+						timeWindows = true;
+					}
+				}
+				else if(words[0].equals("vehicle")) {
+					checkLength(words, 3 + numDimensions, where);
+					int[] vehicle = new int[1 + numDimensions];
+					vehicle[0] = city(words[1], numCities, where);
+					for(int d = 0; d < numDimensions; d++) {
+						vehicle[1 + d] = Integer.parseInt(words[3 + d]);
+					}
+					
+					vehicles.add(vehicle);
+					costs.add(Double.parseDouble(words[2]));
+				}
+				else if(words[0].equals("task")) {
+					checkLength(words, 3 + numDimensions + (timeWindows ? 6 : 0), where);
+					int[] task = new int[2 + numDimensions];
+					task[0] = city(words[1], numCities, where);
+					task[1] = city(words[2], numCities, where);
+					for(int d = 0; d < numDimensions; d++) {
+						task[2 + d] = Integer.parseInt(words[3 + d]);
+					}
+					tasks.add(task);
+					
+					if(timeWindows) {
+						double[] time = new double[6];
+						for(int k = 0; k < 6; k++) {
+							time[k] = Double.parseDouble(words[3 + numDimensions + k]);
+						}
+						times.add(time);
+					}
+				}
+				else {
+					throw new IOException(where + "unknown statement " + words[0]);
+				}
+			}
+			catch(NumberFormatException exc) {
+				throw new IOException(where + "invalid number, " + exc.getMessage());
+			}
+		}
+		
+		if(numCities < 0)
+			throw new IOException(name + ": no cities");
+		
+		// Distances between the cities
+		int[][] neighbours = new int[numCities][];
+		double[][] lengths = new double[numCities][];
+		for(int c = 0; c < numCities; c++) {
+			List<double[]> list = roads.get(c);
+			neighbours[c] = new int[list.size()];
+			lengths[c] = new double[list.size()];
+			
+			for(int n = 0; n < list.size(); n++) {
+				neighbours[c][n] = (int) list.get(n)[0];
+				lengths[c][n] = list.get(n)[1];
+			}
+		}
+		DistanceMatrix distances = new DistanceMatrix(neighbours, lengths);
+		
+		// Vehicles
+		int numVehicles = vehicles.size();
+		int[] vehicleStart = new int[numVehicles];
+		double[] costPerKm = new double[numVehicles];
+		int[][] capacities = new int[numDimensions][numVehicles];
+		for(int v = 0; v < numVehicles; v++) {
+			vehicleStart[v] = vehicles.get(v)[0];
+			costPerKm[v] = costs.get(v);
+			for(int d = 0; d < numDimensions; d++) {
+				capacities[d][v] = vehicles.get(v)[1 + d];
+			}
+		}
+		
+		// Tasks, with the time values indexed by action
+		int numTasks = tasks.size();
+		int[] pickupCity = new int[numTasks], deliveryCity = new int[numTasks];
+		int[][] weights = new int[numDimensions][numTasks];
+		double[] earliest = null, latest = null, service = null;
+		if(timeWindows) {
+			earliest = new double[2*numTasks];
+			latest = new double[2*numTasks];
+			service = new double[2*numTasks];
+		}
+		
+		for(int t = 0; t < numTasks; t++) {
+			pickupCity[t] = tasks.get(t)[0];
+			deliveryCity[t] = tasks.get(t)[1];
+			for(int d = 0; d < numDimensions; d++) {
+				weights[d][t] = tasks.get(t)[2 + d];
+			}
+			
+			if(timeWindows) {
+				double[] time = times.get(t);
+				earliest[Instance.pickUp(t)] = time[0];
+				latest[Instance.pickUp(t)] = time[1];
+				service[Instance.pickUp(t)] = time[2];
+				earliest[Instance.delivery(t)] = time[3];
+				latest[Instance.delivery(t)] = time[4];
+				service[Instance.delivery(t)] = time[5];
+			}
+		}
+		
+		return new Instance(distances, pickupCity, deliveryCity, weights, vehicleStart,
+				capacities, costPerKm, earliest, latest, service);
+	}
+	
+	private static void checkLength(String[] words, int length, String where) throws IOException {
+		if(words.length != length) {
+			throw new IOException(where + "expected " + (length - 1) + " values after " + words[0]
+					+ ", got " + Arrays.asList(words).subList(1, words.length));
+		}
+	}
+	
+	private static int city(String word, int numCities, String where) throws IOException {
+		int city = Integer.parseInt(word);
+		if(city < 0 || city >= numCities)
+			throw new IOException(where + "no city " + city);
+		
+		return city;
+	}
+}
@@ -0,0 +1,178 @@
+package template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Class running several independent stochastic local searches, the islands, each on
+// its own thread and from its own initial solution. Every migrationInterval iterations
+// an island publishes its best solution, and continues from the best solution of all
+// islands if it is better than its own. The best solution overall is returned at the
+// deadline.
+public class IslandSearch {
+	// Parameters of each island, see StochasticLocalSearch
+	private final double randomFactor;
+	private final int maxStagnationIter; // Iterations without improvement of the best
+	                                     // solution of an island before it restarts from it
+	private final int maxLocalStagnationIter;
+	private final int pertubationSteps;
+	private final int migrationInterval; // Iterations of an island between two migrations
+	private ForkJoinPool pool; // Pool scoring the neighbours of every island, or null
+	private int tabuTenure;
+	private boolean polishMoves;
+	private NearestCities nearest;
+	private int escapeIter;
+	private Checkpointer checkpointer; // Writer of the best solution of all islands, or null
+	
+	// Best solution over all islands
+	private Solution globalBest;
+	private int totalIter;
+	private SolverStats stats; // Telemetry of all islands, the trace being the one of
+	                           // the best solution of all islands
+	private final List<SolverStats> islandStats = new ArrayList<SolverStats>();
+	
+	public IslandSearch(double randomFactor, int maxStagnationIter, int maxLocalStagnationIter,
+			int pertubationSteps, int migrationInterval) {
+		this.randomFactor = randomFactor;
+		this.maxStagnationIter = maxStagnationIter;
+		this.maxLocalStagnationIter = maxLocalStagnationIter;
+		this.pertubationSteps = pertubationSteps;
+		this.migrationInterval = migrationInterval;
+	}
+	
+	// Set the options of the stochastic local search of each island, see the constructor,
+	// setPolishMoves and setGranular of StochasticLocalSearch. The pool is shared by all
+	// of them. By default there is no pool, no tabu, no polish and no granular
+	// neighbourhood.
+	public void setSearchOptions(ForkJoinPool pool, int tabuTenure, boolean polishMoves,
+			NearestCities nearest, int escapeIter) {
+		this.pool = pool;
+		this.tabuTenure = tabuTenure;
+		this.polishMoves = polishMoves;
+		this.nearest = nearest;
+		this.escapeIter = escapeIter;
+	}
+	
+	// Write the best solution of all islands to the given checkpoint from time to time,
+	// see Checkpointer, or never if null
+	public void setCheckpointer(Checkpointer checkpointer) {
+		this.checkpointer = checkpointer;
+	}
+	
+	// Run one island per initial solution until the deadline (in milliseconds), each
+	// with the random generator of the same index, and return the best solution found.
+	public Solution run(List<Solution> initSolutions, List<SplittableRandom> randoms, long deadline) {
+		ExecutorService executor = Executors.newFixedThreadPool(initSolutions.size());
+		List<Future<?>> islands = new ArrayList<Future<?>>();
+		
+		globalBest = null;
+		totalIter = 0;
+		stats = new SolverStats();
+		islandStats.clear();
+		stats.start();
+		
+		for(int i = 0; i < initSolutions.size(); i++) {
+			final Solution initSolution = initSolutions.get(i);
+			final SplittableRandom random = randoms.get(i);
+			final Deadline islandDeadline = new Deadline(deadline);
+			
+			islands.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					// Created on the thread of the island, which its stats measure
+					StochasticLocalSearch sls = new StochasticLocalSearch(initSolution, random,
+							pool, randomFactor, maxLocalStagnationIter, pertubationSteps, tabuTenure);
+					sls.setPolishMoves(polishMoves);
+					sls.setGranular(nearest, escapeIter);
+					runIsland(sls, islandDeadline);
+					return null;
+				}
+			}));
+		}
+		
+		try {
+			for(Future<?> island : islands) {
+				island.get();
+			}
+		}
+		catch(InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		}
+		catch(ExecutionException exc) {
+			throw new RuntimeException("An island failed", exc.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		
+		stats.stop();
+		for(SolverStats s : islandStats) {
+			stats.add(s);
+		}
+		
+		return globalBest;
+	}
+	
+	// Return the number of iterations performed by all islands during the last run
+	public int getTotalIter() {
+		return totalIter;
+	}
+	
+	// Return the telemetry of all islands during the last run
+	public SolverStats getStats() {
+		return stats;
+	}
+	
+	private void runIsland(StochasticLocalSearch sls, Deadline deadline) {
+		while(!Thread.currentThread().isInterrupted()) {
+			// There is still time left, restart from the best solution
+			if(sls.getStagnationIter() >= maxStagnationIter)
+				sls.restartFromBest();
+			
+			if(!sls.step())
+				break;
+			
+			if(sls.getIter() % migrationInterval == 0)
+				this.migrate(sls);
+			
+			if(deadline.tick())
+				break;
+		}
+		
+		this.migrate(sls);
+		sls.getStats().stop();
+		
+		synchronized(this) {
+			totalIter += sls.getIter();
+			islandStats.add(sls.getStats());
+		}
+	}
+	
+	// Publish the best solution of an island, or make the island continue from the best
+	// solution of all islands if it is better. The best solutions are never modified
+	// once found, so they can be shared between threads.
+	private void migrate(StochasticLocalSearch sls) {
+		Solution migrant = null;
+		
+		synchronized(this) {
+			if(globalBest == null || sls.getBestCost() < globalBest.getCost()) {
+				globalBest = sls.getBest();
+				stats.onBest(sls.getIter(), globalBest.getCost());
+				
+				if(checkpointer != null && checkpointer.isDue(globalBest.getCost()))
+					checkpointer.write(globalBest);
+			}
+			else if(globalBest.getCost() < sls.getBestCost())
+				migrant = globalBest;
+		}
+		
+		if(migrant != null)
+			sls.offer(migrant);
+	}
+}
@@ -0,0 +1,34 @@
+package template;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Late acceptance hill climbing: a neighbour is accepted if it is not worse than the
+// current solution, or than the current solution of length iterations ago. The costs
+// of the last length iterations are kept in a circular array.
+public class LateAcceptance implements AcceptanceCriterion {
+	private final double[] history;
+	private int next; // Position of the cost of length iterations ago
+	private boolean filled; // Whether the history was initialized
+	
+	public LateAcceptance(int length) {
+		this.history = new double[length];
+		this.next = 0;
+		this.filled = false;
+	}
+	
+	@Override
+	public boolean accept(double cost, double candidateCost, double progress, SplittableRandom random) {
+		if(!filled) {
+			Arrays.fill(history, cost);
+			filled = true;
+		}
+		
+		boolean accepted = candidateCost <= cost || candidateCost <= history[next];
+		
+		history[next] = accepted ? candidateCost : cost;
+		next = next + 1 == history.length ? 0 : next + 1;
+		
+		return accepted;
+	}
+}
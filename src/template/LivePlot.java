@@ -0,0 +1,101 @@
+package template;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import ptolemy.plot.Plot;
+
+// Live plot of the cost over the iterations of a search. The search thread only writes
+// the points in a bounded ring buffer, without any lock, and a Swing timer drains it on
+// the event dispatch thread at a fixed frame rate. When the buffer is full the new
+// points are dropped until the next frame, so the search never waits for the plot.
+public class LivePlot implements SearchListener {
+	private static final int FRAMES_PER_SECOND = 20;
+	
+	// Ring buffer with a single producer, the search, and a single consumer, the event
+	// dispatch thread. Only the producer writes head and only the consumer writes tail.
+	private final int[] iters;
+	private final double[] costs;
+	private final double[] bestCosts;
+	private volatile long head = 0, tail = 0;
+	
+	private final Plot plot;
+	private final Timer timer;
+	
+	public LivePlot(final String title, int bufferSize) {
+		this.iters = new int[bufferSize];
+		this.costs = new double[bufferSize];
+		this.bestCosts = new double[bufferSize];
+		
+		this.plot = new Plot();
+		plot.setTitle(title);
+		plot.setXLabel("Iteration");
+		plot.setYLabel("Cost");
+		plot.addLegend(0, "Current");
+		plot.addLegend(1, "Best");
+		plot.setYLog(true);
+		
+		this.timer = new Timer(1000/FRAMES_PER_SECOND, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				drain();
+			}
+		});
+		
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				JFrame frame = new JFrame(title);
+				frame.add(plot);
+				frame.pack();
+				frame.setVisible(true);
+				timer.start();
+			}
+		});
+	}
+	
+	@Override
+	public void onIteration(int iter, double cost, double bestCost) {
+		long h = head;
+		if(h - tail >= iters.length)
+			return;
+		
+		int k = (int) (h % iters.length);
+		iters[k] = iter;
+		costs[k] = cost;
+		bestCosts[k] = bestCost;
+		head = h + 1;
+	}
+	
+	@Override
+	public void onEnd() {
+		// Draw the last points and stop refreshing
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				timer.stop();
+				drain();
+			}
+		});
+	}
+	
+	// Add the buffered points to the plot and repaint it, on the event dispatch thread
+	private void drain() {
+		long h = head, t = tail;
+		if(h == t)
+			return;
+		
+		for(; t < h; t++) {
+			int k = (int) (t % iters.length);
+			plot.addPoint(0, iters[k], costs[k], true);
+			plot.addPoint(1, iters[k], bestCosts[k], true);
+		}
+		tail = t;
+		
+		plot.fillPlot();
+	}
+}
@@ -0,0 +1,94 @@
+package template;
+
+import java.util.Arrays;
+
+// Reusable list of moves. A move takes a task out of the vehicle which has it and
+// inserts it in a vehicle (possibly the same) with the given pickup and delivery order. The moves
+// are stored in primitive arrays which only grow, so filling the list again at each
+// iteration doesn't allocate anything.
+public class MoveList {
+	private int[] fromVehicle; // Index of the vehicle the task is removed from
+	private int[] task; // Index of the task in the instance
+	private int[] toVehicle; // Index of the vehicle the task is inserted in
+	private int[] pickUpOrder; // Pickup order once inserted
+	private int[] deliverOrder; // Delivery order once inserted
+	private double[] delta; // Difference of cost of the solution after the move
+	private int size;
+	
+	public MoveList() {
+		this(64);
+	}
+	
+	public MoveList(int capacity) {
+		this.fromVehicle = new int[capacity];
+		this.task = new int[capacity];
+		this.toVehicle = new int[capacity];
+		this.pickUpOrder = new int[capacity];
+		this.deliverOrder = new int[capacity];
+		this.delta = new double[capacity];
+		this.size = 0;
+	}
+	
+	// Add a move at the end of the list
+	public void add(int fromVehicle, int task, int toVehicle, int pickUpOrder,
+			int deliverOrder, double delta) {
+		if(size == this.task.length)
+			this.grow();
+		
+		this.fromVehicle[size] = fromVehicle;
+		this.task[size] = task;
+		this.toVehicle[size] = toVehicle;
+		this.pickUpOrder[size] = pickUpOrder;
+		this.deliverOrder[size] = deliverOrder;
+		this.delta[size] = delta;
+		size++;
+	}
+	
+	// Double the capacity of the arrays
+	private void grow() {
+		int capacity = 2*task.length;
+		
+		fromVehicle = Arrays.copyOf(fromVehicle, capacity);
+		task = Arrays.copyOf(task, capacity);
+		toVehicle = Arrays.copyOf(toVehicle, capacity);
+		pickUpOrder = Arrays.copyOf(pickUpOrder, capacity);
+		deliverOrder = Arrays.copyOf(deliverOrder, capacity);
+		delta = Arrays.copyOf(delta, capacity);
+	}
+	
+	public void clear() {
+		size = 0;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public int fromVehicle(int k) {
+		return fromVehicle[k];
+	}
+	
+	public int task(int k) {
+		return task[k];
+	}
+	
+	public int toVehicle(int k) {
+		return toVehicle[k];
+	}
+	
+	public int pickUpOrder(int k) {
+		return pickUpOrder[k];
+	}
+	
+	public int deliverOrder(int k) {
+		return deliverOrder[k];
+	}
+	
+	public double delta(int k) {
+		return delta[k];
+	}
+}
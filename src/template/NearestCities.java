@@ -0,0 +1,42 @@
+package template;
+
+import java.util.Arrays;
+
+// The k nearest cities of each city, for the granular neighbourhoods: a task is only
+// inserted next to the cities near its pickup or its delivery, since the insertions
+// between far away cities are almost never good. A city is one of its own nearest
+// cities, and the cities at the same distance as the k-th nearest one are near too.
+public class NearestCities {
+	public final int k;
+	private final int numCities;
+	private final boolean[] near; // Whether city j is near city i, at i*numCities + j
+	
+	// Compute the nearest cities once for all from the distances
+	public NearestCities(DistanceMatrix distances, int k) {
+		if(k < 1)
+			throw new IllegalArgumentException("A city needs at least one nearest city");
+		
+		this.k = k;
+		this.numCities = distances.numCities;
+		this.near = new boolean[numCities*numCities];
+		
+		double[] row = new double[numCities];
+		for(int i = 0; i < numCities; i++) {
+			for(int j = 0; j < numCities; j++) {
+				row[j] = distances.get(i, j);
+			}
+			Arrays.sort(row);
+			
+			// Distance of the k-th nearest city other than i
+			double radius = row[Math.min(k, numCities - 1)];
+			for(int j = 0; j < numCities; j++) {
+				near[i*numCities + j] = j == i || distances.get(i, j) <= radius;
+			}
+		}
+	}
+	
+	// Return whether the other city is one of the nearest cities of the given city
+	public boolean isNear(int city, int other) {
+		return near[city*numCities + other];
+	}
+}
@@ -0,0 +1,378 @@
+package template;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Class finding the best neighbours of a solution without materializing the moves. It
+// scores the same neighbourhood as Solution.getNeighbours, split in units which are one
+// vehicle and one pickup order each, and the units can be scored in parallel on a fork
+// join pool. Ties are counted in the enumeration order of the units, so the move chosen
+// for a given random number doesn't depend on how the work was split between threads.
+public class NeighbourhoodEvaluator {
+	private static final int UNITS_PER_JOB = 8; // Units scored by a job without splitting
+	
+	private final ForkJoinPool pool; // Pool the units are scored on, null to score them
+	                                 // in the calling thread
+	
+	// State of the last evaluation
+	private Solution solution;
+	private int permutedTask; // Task reordered in its own vehicle
+	private int movedTask; // Task moved to other vehicles
+	private int intraUnits; // The first intraUnits units are the ones of permutedTask
+	private int numUnits;
+	private int[] unitVehicle = new int[64]; // Vehicle of each unit
+	private int[] unitPickUp = new int[64]; // Pickup order of each unit
+	private double[] unitBest = new double[64]; // Lowest difference of cost of each unit
+	private int[] unitCount = new int[64]; // Number of moves reaching it
+	private int[] unitMoves = new int[64]; // Number of moves of each unit
+	private boolean[] unitTabu = new boolean[64]; // Whether the moves of each unit are tabu
+	private double bestDelta;
+	private int bestCount;
+	private long scoringNanos; // Time spent scoring the units
+	private TabuList tabu; // Tabu moves, or null if none
+	private double aspirationDelta; // Tabu moves are only allowed below this difference
+	private int fromVehicle, toVehicle; // Vehicles of the last applied move
+	private NearestCities nearest; // Cities a moved task may be inserted next to, or null
+	                               // for the full neighbourhood
+	
+	public NeighbourhoodEvaluator(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+	
+	// Score the neighbourhood of the given solution, choosing the tasks with the given
+	// random generator as Solution.getNeighbours does. Return false if there is no
+	// neighbour at all.
+	public boolean evaluate(Solution solution, SplittableRandom random) {
+		return this.evaluate(solution, random, null, 0);
+	}
+	
+	// Score the neighbourhood like above, skipping the moves the given tabu list forbids
+	// unless their difference of cost is below aspirationDelta, e.g. because they lead to
+	// a new best solution. Return false if there is no allowed neighbour. The applied
+	// moves are then added to the tabu list, see applyBestMove.
+	public boolean evaluate(Solution solution, SplittableRandom random, TabuList tabu,
+			double aspirationDelta) {
+		Instance instance = solution.getInstance();
+		this.solution = solution;
+		this.tabu = tabu;
+		this.aspirationDelta = aspirationDelta;
+		this.bestDelta = Double.POSITIVE_INFINITY;
+		this.bestCount = 0;
+		this.scoringNanos = 0;
+		this.numUnits = 0;
+		
+		if(instance.numTasks == 0)
+			return false;
+		
+		this.permutedTask = random.nextInt(instance.numTasks);
+		this.movedTask = random.nextInt(instance.numTasks);
+		
+		// Reorder permutedTask in its own vehicle, the list is scored without the task
+		int vehicle = solution.vehicleOf(permutedTask);
+		TaskList taskList = solution.getMutableTaskList(vehicle);
+		int pickUpOrder = taskList.indexOf(Instance.pickUp(permutedTask));
+		int deliverOrder = taskList.indexOf(Instance.delivery(permutedTask));
+		double distance = taskList.distance;
+		double intraRemovalDelta = taskList.removalDelta(pickUpOrder, deliverOrder);
+		
+		taskList.removeTask(permutedTask);
+		for(int i = 0; i < taskList.size() + 1; i++) {
+			this.addUnit(permutedTask, vehicle, vehicle, i);
+		}
+		intraUnits = numUnits;
+		this.scoreUnits(0, intraUnits, permutedTask, intraRemovalDelta);
+		taskList.insertTask(permutedTask, pickUpOrder, deliverOrder);
+		taskList.distance = distance;
+		
+		// Move movedTask to any other vehicle
+		int v1 = solution.vehicleOf(movedTask);
+		TaskList v1TaskList = solution.getTaskList(v1);
+		double removalDelta = instance.vehicleCostPerKm[v1]*v1TaskList.removalDelta(
+				v1TaskList.indexOf(Instance.pickUp(movedTask)), v1TaskList.indexOf(Instance.delivery(movedTask)));
+		for(int v2 = 0; v2 < instance.numVehicles; v2++) {
+			if(v2 == v1)
+				continue;
+			
+			TaskList v2TaskList = solution.getTaskList(v2);
+			for(int i = 0; i < v2TaskList.size() + 1; i++) {
+				if(nearest == null || this.isNearPickUp(v2TaskList, movedTask, i))
+					this.addUnit(movedTask, v1, v2, i);
+			}
+		}
+		this.scoreUnits(intraUnits, numUnits, movedTask, removalDelta);
+		
+		// Lowest difference of cost over all the units, and number of moves reaching it
+		for(int u = 0; u < numUnits; u++) {
+			if(unitBest[u] < bestDelta) {
+				bestDelta = unitBest[u];
+				bestCount = 0;
+			}
+			if(unitBest[u] == bestDelta) {
+				bestCount += unitCount[u];
+			}
+		}
+		
+		return bestCount > 0;
+	}
+	
+	// Return the lowest difference of cost found by the last evaluation
+	public double getBestDelta() {
+		return bestDelta;
+	}
+	
+	// Return the number of moves reaching the lowest difference of cost
+	public int getBestCount() {
+		return bestCount;
+	}
+	
+	// Return the number of neighbours scored by the last evaluation
+	public long getNeighbourCount() {
+		long count = 0;
+		for(int u = 0; u < numUnits; u++) {
+			count += unitMoves[u];
+		}
+		
+		return count;
+	}
+	
+	// Return the time in nanoseconds spent scoring the neighbours during the last
+	// evaluation, the rest being spent enumerating them
+	public long getScoringNanos() {
+		return scoringNanos;
+	}
+	
+	// Restrict the moves of a task to other vehicles to the insertions next to the
+	// nearest cities of its pickup and delivery, or use the full neighbourhood if null.
+	// The reorderings in the vehicle of a task are not restricted.
+	public void setNearestCities(NearestCities nearest) {
+		this.nearest = nearest;
+	}
+	
+	// Return the vehicle the task of the last applied move was taken from
+	public int getFromVehicle() {
+		return fromVehicle;
+	}
+	
+	// Return the vehicle the task of the last applied move was put in
+	public int getToVehicle() {
+		return toVehicle;
+	}
+	
+	// Apply the n-th move reaching the lowest difference of cost, in enumeration order,
+	// to the evaluated solution. With a tabu list, moving the task back where it was
+	// becomes tabu.
+	public void applyBestMove(int n) {
+		for(int u = 0; u < numUnits; u++) {
+			if(unitBest[u] != bestDelta)
+				continue;
+			if(n >= unitCount[u]) {
+				n -= unitCount[u];
+				continue;
+			}
+			
+			// The move is in this unit, look for it again
+			boolean intra = u < intraUnits;
+			int task = intra ? permutedTask : movedTask;
+			int vehicle = unitVehicle[u], i = unitPickUp[u];
+			TaskList taskList = solution.getTaskList(vehicle);
+			
+			if(intra) {
+				taskList = solution.getMutableTaskList(vehicle);
+				int pickUpOrder = taskList.indexOf(Instance.pickUp(task));
+				int deliverOrder = taskList.indexOf(Instance.delivery(task));
+				double distance = taskList.distance;
+				double removalDelta = taskList.removalDelta(pickUpOrder, deliverOrder);
+				
+				taskList.removeTask(task);
+				int j = this.findMove(u, task, removalDelta, n);
+				taskList.insertTask(task, pickUpOrder, deliverOrder);
+				taskList.distance = distance;
+				
+				solution.applyMove(task, vehicle, i, j);
+				if(tabu != null)
+					tabu.add(task, vehicle, vehicle, pickUpOrder);
+				fromVehicle = vehicle;
+				toVehicle = vehicle;
+			}
+			else {
+				int v1 = solution.vehicleOf(task);
+				TaskList v1TaskList = solution.getTaskList(v1);
+				double removalDelta = solution.getInstance().vehicleCostPerKm[v1]*v1TaskList.removalDelta(
+						v1TaskList.indexOf(Instance.pickUp(task)), v1TaskList.indexOf(Instance.delivery(task)));
+				
+				int pickUpOrder = v1TaskList.indexOf(Instance.pickUp(task));
+				int j = this.findMove(u, task, removalDelta, n);
+				solution.applyMove(task, vehicle, i, j);
+				if(tabu != null)
+					tabu.add(task, vehicle, v1, pickUpOrder);
+				fromVehicle = v1;
+				toVehicle = vehicle;
+			}
+			
+			return;
+		}
+		
+		throw new IllegalArgumentException("There are only " + bestCount + " best moves");
+	}
+	
+	// Add the unit of the moves of the given task from a vehicle to another one with the
+	// given pickup order
+	private void addUnit(int task, int fromVehicle, int vehicle, int pickUpOrder) {
+		if(numUnits == unitVehicle.length) {
+			int capacity = 2*numUnits;
+			unitVehicle = Arrays.copyOf(unitVehicle, capacity);
+			unitPickUp = Arrays.copyOf(unitPickUp, capacity);
+			unitBest = Arrays.copyOf(unitBest, capacity);
+			unitCount = Arrays.copyOf(unitCount, capacity);
+			unitMoves = Arrays.copyOf(unitMoves, capacity);
+			unitTabu = Arrays.copyOf(unitTabu, capacity);
+		}
+		
+		unitVehicle[numUnits] = vehicle;
+		unitPickUp[numUnits] = pickUpOrder;
+		unitTabu[numUnits] = tabu != null && tabu.isTabu(task, fromVehicle, vehicle, pickUpOrder);
+		numUnits++;
+	}
+	
+	// Score the units from lo to hi, all inserting the given task. For a reordering,
+	// removalDelta is the difference of distance of the vehicle when removing the task,
+	// otherwise it is the difference of cost.
+	private void scoreUnits(int lo, int hi, int task, double removalDelta) {
+		long start = System.nanoTime();
+		
+		// Every list must be up to date before being read by several threads
+		for(int u = lo; u < hi; u++) {
+			if(u == lo || unitVehicle[u] != unitVehicle[u - 1])
+				solution.getTaskList(unitVehicle[u]).prepareReads();
+		}
+		
+		if(pool == null || hi - lo <= UNITS_PER_JOB) {
+			for(int u = lo; u < hi; u++) {
+				this.scoreUnit(u, task, removalDelta);
+			}
+		}
+		else {
+			pool.invoke(new ScoreJob(lo, hi, task, removalDelta));
+		}
+		
+		scoringNanos += System.nanoTime() - start;
+	}
+	
+	// Compute the lowest difference of cost of the u-th unit, and the number of moves
+	// reaching it
+	private void scoreUnit(int u, int task, double removalDelta) {
+		int vehicle = unitVehicle[u], i = unitPickUp[u];
+		TaskList taskList = solution.getTaskList(vehicle);
+		double costPerKm = solution.getInstance().vehicleCostPerKm[vehicle];
+		double best = Double.POSITIVE_INFINITY;
+		double limit = unitTabu[u] ? aspirationDelta : Double.POSITIVE_INFINITY;
+		int count = 0, moves = 0;
+		
+		int last = taskList.lastDeliverOrder(task, i);
+		for(int j = i + 1; j <= last; j++) {
+			if(!taskList.canDeliverAt(task, i, j) || !this.isCandidate(u, taskList, task, i, j))
+				continue;
+			moves++;
+			
+			double delta = this.moveDelta(u, taskList, costPerKm, task, removalDelta, i, j);
+			if(delta >= limit)
+				continue;
+			
+			if(delta == best) {
+				count++;
+			}
+			if(delta < best) {
+				best = delta;
+				count = 1;
+			}
+		}
+		
+		unitBest[u] = best;
+		unitCount[u] = count;
+		unitMoves[u] = moves;
+	}
+	
+	// Return the delivery order of the n-th move of the u-th unit reaching the lowest
+	// difference of cost
+	private int findMove(int u, int task, double removalDelta, int n) {
+		int vehicle = unitVehicle[u], i = unitPickUp[u];
+		TaskList taskList = solution.getTaskList(vehicle);
+		double costPerKm = solution.getInstance().vehicleCostPerKm[vehicle];
+		
+		double limit = unitTabu[u] ? aspirationDelta : Double.POSITIVE_INFINITY;
+		
+		int last = taskList.lastDeliverOrder(task, i);
+		for(int j = i + 1; j <= last; j++) {
+			if(!taskList.canDeliverAt(task, i, j) || !this.isCandidate(u, taskList, task, i, j))
+				continue;
+			
+			double delta = this.moveDelta(u, taskList, costPerKm, task, removalDelta, i, j);
+			if(delta < limit && delta == bestDelta && n-- == 0)
+				return j;
+		}
+		
+		throw new IllegalStateException("The solution changed since its evaluation");
+	}
+	
+	// Return the difference of cost of a move, computed exactly as in Solution so that
+	// both give the same best moves
+	private double moveDelta(int u, TaskList taskList, double costPerKm, int task,
+			double removalDelta, int i, int j) {
+		if(u < intraUnits)
+			return costPerKm*(removalDelta + taskList.insertionDelta(task, i, j));
+		else
+			return removalDelta + costPerKm*taskList.insertionDelta(task, i, j);
+	}
+	
+	// Return whether the pickup of the given task, inserted at the given order, would be
+	// next to one of the nearest cities of its city
+	private boolean isNearPickUp(TaskList taskList, int task, int i) {
+		int city = solution.getInstance().actionCity[Instance.pickUp(task)];
+		
+		return nearest.isNear(city, taskList.cityAt(i - 1))
+				|| (i < taskList.size() && nearest.isNear(city, taskList.cityAt(i)));
+	}
+	
+	// Return whether the move of the u-th unit delivering at order j is in the
+	// neighbourhood: with nearest cities, a moved task must be delivered right after
+	// its pickup or next to one of the nearest cities of its delivery
+	private boolean isCandidate(int u, TaskList taskList, int task, int i, int j) {
+		if(nearest == null || u < intraUnits || j == i + 1)
+			return true;
+		
+		int city = solution.getInstance().actionCity[Instance.delivery(task)];
+		return nearest.isNear(city, taskList.cityAt(j - 2))
+				|| (j - 1 < taskList.size() && nearest.isNear(city, taskList.cityAt(j - 1)));
+	}
+	
+	// Job scoring a range of units, split in two halves until it is small enough
+	private class ScoreJob extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		private final int lo, hi, task;
+		private final double removalDelta;
+		
+		public ScoreJob(int lo, int hi, int task, double removalDelta) {
+			this.lo = lo;
+			this.hi = hi;
+			this.task = task;
+			this.removalDelta = removalDelta;
+		}
+		
+		@Override
+		protected void compute() {
+			if(hi - lo <= UNITS_PER_JOB) {
+				for(int u = lo; u < hi; u++) {
+					scoreUnit(u, task, removalDelta);
+				}
+			}
+			else {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new ScoreJob(lo, mid, task, removalDelta),
+						new ScoreJob(mid, hi, task, removalDelta));
+			}
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Initial solution with the tasks randomly spread between the vehicles, each task being
+// delivered right after being picked up. With time windows this order may not be
+// feasible, so each task is inserted at a random feasible place of a random vehicle
+// instead.
+public class RandomConstruction implements ConstructionHeuristic {
+	@Override
+	public Solution build(Instance instance, SplittableRandom random) {
+		if(instance.hasTimeWindows)
+			return this.buildWithTimeWindows(instance, random);
+		
+		Solution initSol = new Solution(instance);
+		
+		List<List<Integer>> tasksPerVehicle = new ArrayList<List<Integer>>();
+		
+		// Create an empty list of tasks for each vehicle
+		for(int v = 0; v < instance.numVehicles; v++) {
+			tasksPerVehicle.add(new ArrayList<Integer>());
+		}
+		
+		// For each task
+		for(int t = 0; t < instance.numTasks; t++) {
+			List<Integer> admissibleVehicles = new ArrayList<Integer>();
+			
+			// Compute the list of admissible vehicle for this task, i.e. the ones with
+			// a capacity big enough
+			for(int v = 0; v < instance.numVehicles; v++) {
+				if(instance.fits(t, v))
+					admissibleVehicles.add(v);
+			}
+			
+			// If the list is empty, the problem in unsolvable
+			if(admissibleVehicles.isEmpty())
+				return null;
+			
+			// Add the task to a random admissible vehicle
+			int i = random.nextInt(admissibleVehicles.size());
+			tasksPerVehicle.get(admissibleVehicles.get(i)).add(t);
+		}
+		
+		// Create the solution with the computed task distribution
+		for(int v = 0; v < instance.numVehicles; v++) {
+			initSol.putVehicle(v, tasksPerVehicle.get(v));
+		}
+		
+		return initSol;
+	}
+	
+	// Insert each task at a random feasible place of a random vehicle, or return null if
+	// a task fits in no vehicle
+	private Solution buildWithTimeWindows(Instance instance, SplittableRandom random) {
+		Solution solution = new Solution(instance);
+		int[] vehicles = new int[instance.numVehicles];
+		for(int v = 0; v < vehicles.length; v++) {
+			vehicles[v] = v;
+		}
+		
+		for(int t = 0; t < instance.numTasks; t++) {
+			boolean inserted = false;
+			
+			// Try the vehicles in a random order
+			for(int k = 0; k < vehicles.length && !inserted; k++) {
+				int swap = k + random.nextInt(vehicles.length - k);
+				int v = vehicles[swap];
+				vehicles[swap] = vehicles[k];
+				vehicles[k] = v;
+				
+				// Draw one of the feasible insertions uniformly
+				TaskList taskList = solution.getTaskList(v);
+				int pickUpOrder = -1, deliverOrder = -1, count = 0;
+				for(int i = 0; i < taskList.size() + 1; i++) {
+					int last = taskList.lastDeliverOrder(t, i);
+					
+					for(int j = i + 1; j <= last; j++) {
+						if(taskList.canDeliverAt(t, i, j) && random.nextInt(++count) == 0) {
+							pickUpOrder = i;
+							deliverOrder = j;
+						}
+					}
+				}
+				
+				if(count > 0) {
+					solution.insertTask(t, v, pickUpOrder, deliverOrder);
+					inserted = true;
+				}
+			}
+			
+			if(!inserted)
+				return null;
+		}
+		
+		return solution;
+	}
+	
+	@Override
+	public String toString() {
+		return "random";
+	}
+}
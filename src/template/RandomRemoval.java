@@ -0,0 +1,35 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Destroy operator removing tasks chosen uniformly at random
+public class RandomRemoval implements DestroyOperator {
+	@Override
+	public int destroy(Solution solution, int count, SplittableRandom random, int[] removed) {
+		int numTasks = solution.getInstance().numTasks;
+		count = Math.min(count, numTasks);
+		
+		// Partial Fisher-Yates shuffle of the tasks
+		int[] tasks = new int[numTasks];
+		for(int t = 0; t < numTasks; t++) {
+			tasks[t] = t;
+		}
+		
+		for(int k = 0; k < count; k++) {
+			int other = k + random.nextInt(numTasks - k);
+			int task = tasks[other];
+			tasks[other] = tasks[k];
+			tasks[k] = task;
+			
+			solution.removeTask(task);
+			removed[k] = task;
+		}
+		
+		return count;
+	}
+	
+	@Override
+	public String toString() {
+		return "random";
+	}
+}
@@ -0,0 +1,58 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Keys ranking indices by a double value without boxing, for the destroy operators. A
+// key is a long ordered as the value, with the index in its low bits in place of the
+// last bits of the mantissa, so that a primitive array of keys can be sorted or
+// selected in and the index read back. The values closer than these bits are ordered
+// by index.
+class RankKeys {
+	private final long mask; // Bits of the index
+	
+	// Keys of the indices from 0 to count - 1
+	public RankKeys(int count) {
+		int bits = 64 - Long.numberOfLeadingZeros(Math.max(1, count - 1));
+		this.mask = (1L << bits) - 1;
+	}
+	
+	public long key(double value, int index) {
+		long bits = Double.doubleToLongBits(value);
+		bits ^= (bits >> 63) & Long.MAX_VALUE; // Reverse the order of the negative values
+		return (bits & ~mask) | index;
+	}
+	
+	public int index(long key) {
+		return (int) (key & mask);
+	}
+	
+	// Reorder the first n keys so that the r-th one is the one of rank r, with the
+	// smaller ones before it and the larger ones after it, by a quickselect with random
+	// pivots in expected O(n). The keys must be distinct.
+	public static void select(long[] keys, int n, int r, SplittableRandom random) {
+		int lo = 0, hi = n - 1;
+		
+		while(lo < hi) {
+			long pivot = keys[lo + random.nextInt(hi - lo + 1)];
+			int i = lo, j = hi;
+			while(i <= j) {
+				while(keys[i] < pivot)
+					i++;
+				while(keys[j] > pivot)
+					j--;
+				if(i <= j) {
+					long key = keys[i];
+					keys[i++] = keys[j];
+					keys[j--] = key;
+				}
+			}
+			
+			if(r <= j)
+				hi = j;
+			else if(r >= i)
+				lo = i;
+			else
+				return;
+		}
+	}
+}
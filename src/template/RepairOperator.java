@@ -0,0 +1,11 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Interface of the operators inserting removed tasks back into a solution in a large
+// neighbourhood search
+public interface RepairOperator {
+	// Insert the first count tasks of the given array, which no vehicle is in charge of,
+	// into the given solution. Return false if some task could not be inserted.
+	boolean repair(Solution solution, int[] tasks, int count, SplittableRandom random);
+}
@@ -0,0 +1,114 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Class running a local search on sampled neighbourhoods, one iteration at a time. At
+// each iteration a single random neighbour is drawn with Solution.sampleMove, and the
+// acceptance criterion decides whether to move to it. An iteration costs a few
+// microseconds, so many more of them fit in the time of the exhaustive search of
+// StochasticLocalSearch.
+public class SampledLocalSearch {
+	private final SplittableRandom random;
+	private final AcceptanceCriterion acceptance;
+	
+	// State of the search. The best solution is only copied when the search is about
+	// to leave it, as most iterations improving it are followed by other improvements.
+	private Solution current, best;
+	private double bestCost;
+	private boolean currentIsBest; // Whether best is outdated and current is the best
+	private int iter, stagnationIter;
+	
+	private final MoveList moves;
+	private final SolverStats stats;
+	
+	public SampledLocalSearch(Solution initSolution, SplittableRandom random,
+			AcceptanceCriterion acceptance) {
+		this.random = random;
+		this.acceptance = acceptance;
+		
+		this.current = new Solution(initSolution);
+		this.best = null;
+		this.bestCost = current.getCost();
+		this.currentIsBest = true;
+		this.iter = 0;
+		this.stagnationIter = 0;
+		
+		this.moves = new MoveList(1);
+		this.stats = new SolverStats();
+		stats.start();
+		stats.onBest(0, bestCost);
+	}
+	
+	// Perform one iteration, progress being the fraction of the time of the search
+	// elapsed. Return false if the solution has no neighbour at all. An iteration may
+	// draw no feasible neighbour, it then keeps the current solution.
+	public boolean step(double progress) {
+		if(current.getInstance().numTasks == 0)
+			return false;
+		
+		boolean sampled = current.sampleMove(random, moves);
+		double cost = current.getCost();
+		double candidateCost = sampled ? cost + moves.delta(0) : Double.POSITIVE_INFINITY;
+		
+		if(sampled)
+			stats.addNeighbours(1);
+		
+		if(sampled && acceptance.accept(cost, candidateCost, progress, random)) {
+			// Keep the best solution before leaving it
+			if(currentIsBest && candidateCost > bestCost) {
+				best = new Solution(current);
+				currentIsBest = false;
+			}
+			
+			current.applyMove(moves, 0);
+			stats.onAccept();
+		}
+		else {
+			stats.onReject();
+		}
+		
+		iter++;
+		stagnationIter++;
+		
+		if(current.getCost() < bestCost) {
+			bestCost = current.getCost();
+			currentIsBest = true;
+			stagnationIter = 0;
+			stats.onBest(iter, bestCost);
+		}
+		
+		return true;
+	}
+	
+	// Return the telemetry of the search, started when it was created
+	public SolverStats getStats() {
+		return stats;
+	}
+	
+	public Solution getBest() {
+		if(currentIsBest) {
+			best = new Solution(current);
+			currentIsBest = false;
+		}
+		
+		return best;
+	}
+	
+	public double getBestCost() {
+		return bestCost;
+	}
+	
+	public double getCost() {
+		return current.getCost();
+	}
+	
+	// Return the number of iterations performed
+	public int getIter() {
+		return iter;
+	}
+	
+	// Return the number of iterations since the best solution was last improved
+	public int getStagnationIter() {
+		return stagnationIter;
+	}
+}
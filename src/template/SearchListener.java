@@ -0,0 +1,12 @@
+package template;
+
+// Interface of the objects following the progress of a search. They are called on the
+// thread of the search, so they must return quickly and never block it.
+public interface SearchListener {
+	// Called after each iteration with the cost of the current solution and the one of
+	// the best solution found so far
+	void onIteration(int iter, double cost, double bestCost);
+	
+	// Called once when the search ends
+	void onEnd();
+}
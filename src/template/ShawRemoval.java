@@ -0,0 +1,68 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Destroy operator removing related tasks, which are easier to exchange with each other
+// than random ones. Two tasks are the more related the closer their pickup cities and
+// their delivery cities are. A first task is chosen at random, then each next one is
+// drawn among the remaining tasks ranked by relatedness to one of the removed tasks,
+// the k-th one with probability decreasing as in WorstRemoval. Only the drawn rank is
+// selected among the remaining tasks, in expected linear time, instead of sorting them
+// all.
+public class ShawRemoval implements DestroyOperator {
+	private final double randomness;
+	
+	public ShawRemoval(double randomness) {
+		this.randomness = randomness;
+	}
+	
+	@Override
+	public int destroy(Solution solution, int count, SplittableRandom random, int[] removed) {
+		Instance instance = solution.getInstance();
+		count = Math.min(count, instance.numTasks);
+		if(count == 0)
+			return 0;
+		
+		// Tasks still in the solution are the first left ones, in any order
+		int[] remaining = new int[instance.numTasks];
+		for(int t = 0; t < instance.numTasks; t++) {
+			remaining[t] = t;
+		}
+		int left = remaining.length;
+		RankKeys rankKeys = new RankKeys(left);
+		long[] keys = new long[left]; // Keys of the positions in remaining
+		
+		int first = random.nextInt(left);
+		removed[0] = remaining[first];
+		remaining[first] = remaining[--left];
+		solution.removeTask(removed[0]);
+		
+		for(int k = 1; k < count; k++) {
+			int reference = removed[random.nextInt(k)];
+			for(int i = 0; i < left; i++) {
+				keys[i] = rankKeys.key(relatedness(instance, reference, remaining[i]), i);
+			}
+			
+			int r = (int) (left*Math.pow(random.nextDouble(), randomness));
+			RankKeys.select(keys, left, r, random);
+			int i = rankKeys.index(keys[r]);
+			removed[k] = remaining[i];
+			remaining[i] = remaining[--left];
+			solution.removeTask(removed[k]);
+		}
+		
+		return count;
+	}
+	
+	// Return the distance between the pickup cities plus the one between the delivery
+	// cities of two tasks, the lower the more related
+	private static double relatedness(Instance instance, int a, int b) {
+		return instance.distances.get(instance.actionCity[Instance.pickUp(a)], instance.actionCity[Instance.pickUp(b)])
+				+ instance.distances.get(instance.actionCity[Instance.delivery(a)], instance.actionCity[Instance.delivery(b)]);
+	}
+	
+	@Override
+	public String toString() {
+		return "shaw";
+	}
+}
@@ -0,0 +1,26 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Simulated annealing: a worse neighbour is accepted with probability
+// exp(-(candidateCost - cost)/T). The temperature T decreases geometrically with the
+// elapsed time, from initialTemperature to finalTemperature at the deadline. Both are
+// relative to the current cost, so a temperature of 0.01 accepts a neighbour 1% worse
+// with probability 1/e whatever the scale of the instance.
+public class SimulatedAnnealing implements AcceptanceCriterion {
+	private final double initialTemperature, finalTemperature;
+	
+	public SimulatedAnnealing(double initialTemperature, double finalTemperature) {
+		this.initialTemperature = initialTemperature;
+		this.finalTemperature = finalTemperature;
+	}
+	
+	@Override
+	public boolean accept(double cost, double candidateCost, double progress, SplittableRandom random) {
+		if(candidateCost <= cost)
+			return true;
+		
+		double temperature = cost*initialTemperature*Math.pow(finalTemperature/initialTemperature, progress);
+		return random.nextDouble() < Math.exp((cost - candidateCost)/temperature);
+	}
+}
@@ -0,0 +1,371 @@
+package template;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+// Binary snapshots of instances and solutions, read and written through memory-mapped
+// files so that even the distance matrix of a large instance loads in a few
+// milliseconds. An instance snapshot holds the primitive arrays of the Instance, without
+// the logist objects, and a solution snapshot holds the actions of each vehicle. A
+// solution is checkpointed by writing its snapshot, and resumed by reading it back
+// against the same instance.
+//
+// Every number is little-endian. An instance snapshot is the header (magic, version,
+// cities, tasks, vehicles, dimensions, whether there are time windows), the distances,
+// the pickup and delivery cities and weights of the tasks, the time windows by action if
+// any, then the home cities, capacities and costs per km of the vehicles. A solution
+// snapshot is the header (magic, version, fingerprint of the instance, tasks, vehicles),
+// then the number of actions and the actions of each vehicle.
+//
+// The files are written to a temporary file first and then renamed, so a run stopped
+// while writing a checkpoint keeps the previous one.
+public class Snapshot {
+	private static final int INSTANCE_MAGIC = 0x49504450; // "PDPI"
+	private static final int SOLUTION_MAGIC = 0x53504450; // "PDPS"
+	private static final int VERSION = 1;
+	
+	// Convert an instance file read by InstanceReader to a snapshot:
+	//   java template.Snapshot <instance file> <snapshot file>
+	public static void main(String[] args) throws IOException {
+		if(args.length != 2) {
+			System.err.println("Usage: java template.Snapshot <instance file> <snapshot file>");
+			System.exit(1);
+		}
+		
+		writeInstance(InstanceReader.read(new File(args[0])), new File(args[1]));
+	}
+	
+	public static void writeInstance(Instance instance, File file) throws IOException {
+		int numCities = instance.distances.numCities;
+		int numTasks = instance.numTasks, numVehicles = instance.numVehicles;
+		int numDimensions = instance.numDimensions;
+		
+		long size = 7*4 + 8L*numCities*numCities
+				+ 4L*numTasks*(2 + numDimensions)
+				+ (instance.hasTimeWindows ? 3*8L*2*numTasks : 0)
+				+ 4L*numVehicles*(1 + numDimensions) + 8L*numVehicles;
+		
+		ByteBuffer buffer = openWrite(file, size);
+		buffer.putInt(INSTANCE_MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(numCities);
+		buffer.putInt(numTasks);
+		buffer.putInt(numVehicles);
+		buffer.putInt(numDimensions);
+		buffer.putInt(instance.hasTimeWindows ? 1 : 0);
+		
+		for(int i = 0; i < numCities; i++) {
+			for(int j = 0; j < numCities; j++) {
+				buffer.putDouble(instance.distances.get(i, j));
+			}
+		}
+		
+		for(int t = 0; t < numTasks; t++) {
+			buffer.putInt(instance.actionCity[Instance.pickUp(t)]);
+		}
+		for(int t = 0; t < numTasks; t++) {
+			buffer.putInt(instance.actionCity[Instance.delivery(t)]);
+		}
+		for(int d = 0; d < numDimensions; d++) {
+			for(int t = 0; t < numTasks; t++) {
+				buffer.putInt(instance.actionLoads[d][Instance.pickUp(t)]);
+			}
+		}
+		
+		if(instance.hasTimeWindows) {
+			putDoubles(buffer, instance.actionEarliest);
+			putDoubles(buffer, instance.actionLatest);
+			putDoubles(buffer, instance.actionService);
+		}
+		
+		putInts(buffer, instance.vehicleStart);
+		for(int d = 0; d < numDimensions; d++) {
+			putInts(buffer, instance.vehicleCapacities[d]);
+		}
+		putDoubles(buffer, instance.vehicleCostPerKm);
+		
+		closeWrite(buffer, file);
+	}
+	
+	public static Instance readInstance(File file) throws IOException {
+		ByteBuffer buffer = openRead(file);
+		
+		try {
+			checkHeader(buffer, INSTANCE_MAGIC, file);
+			int numCities = buffer.getInt();
+			int numTasks = buffer.getInt();
+			int numVehicles = buffer.getInt();
+			int numDimensions = buffer.getInt();
+			boolean timeWindows = buffer.getInt() != 0;
+			
+			// Check the counts against the size of the file before allocating anything, so
+			// that a corrupted header fails here rather than with an OutOfMemoryError.
+			// numCities is at most 46340 for the matrix to fit in an array, and the other
+			// counts at most a quarter of the remaining bytes, so the size below cannot
+			// overflow.
+			int maxCount = buffer.remaining()/4;
+			if(numCities < 1 || numCities > 46340 || numTasks < 0 || numTasks > maxCount
+					|| numVehicles < 0 || numVehicles > maxCount || numDimensions < 1
+					|| numDimensions > maxCount)
+				throw new IOException(file + " has an invalid header: " + numCities + " cities, "
+						+ numTasks + " tasks, " + numVehicles + " vehicles, " + numDimensions + " dimensions");
+			
+			long size = 8L*numCities*numCities + 4L*numTasks*(2 + numDimensions)
+					+ (timeWindows ? 8L*6*numTasks : 0) + 4L*numVehicles*(1 + numDimensions) + 8L*numVehicles;
+			if(size != buffer.remaining())
+				throw new IOException(file + " has " + buffer.remaining() + " bytes of data instead of " + size);
+			
+			DistanceMatrix distances = new DistanceMatrix(numCities, getDoubles(buffer, numCities*numCities));
+			
+			int[] pickupCity = getInts(buffer, numTasks);
+			int[] deliveryCity = getInts(buffer, numTasks);
+			int[][] weights = new int[numDimensions][];
+			for(int d = 0; d < numDimensions; d++) {
+				weights[d] = getInts(buffer, numTasks);
+			}
+			
+			double[] earliest = null, latest = null, service = null;
+			if(timeWindows) {
+				earliest = getDoubles(buffer, 2*numTasks);
+				latest = getDoubles(buffer, 2*numTasks);
+				service = getDoubles(buffer, 2*numTasks);
+			}
+			
+			int[] vehicleStart = getInts(buffer, numVehicles);
+			int[][] capacities = new int[numDimensions][];
+			for(int d = 0; d < numDimensions; d++) {
+				capacities[d] = getInts(buffer, numVehicles);
+			}
+			double[] costPerKm = getDoubles(buffer, numVehicles);
+			
+			return new Instance(distances, pickupCity, deliveryCity, weights, vehicleStart,
+					capacities, costPerKm, earliest, latest, service);
+		}
+		catch(BufferUnderflowException exc) {
+			throw new IOException(file + " is truncated");
+		}
+	}
+	
+	// Return whether the given file is an instance snapshot, by its first bytes
+	public static boolean isInstance(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			return raf.length() >= 4 && Integer.reverseBytes(raf.readInt()) == INSTANCE_MAGIC;
+		}
+		finally {
+			raf.close();
+		}
+	}
+	
+	public static void writeSolution(Solution solution, File file) throws IOException {
+		Instance instance = solution.getInstance();
+		
+		long size = 4*4 + 8;
+		for(int v = 0; v < instance.numVehicles; v++) {
+			size += 4 + 4L*solution.getTaskList(v).size();
+		}
+		
+		ByteBuffer buffer = openWrite(file, size);
+		buffer.putInt(SOLUTION_MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putLong(fingerprint(instance));
+		buffer.putInt(instance.numTasks);
+		buffer.putInt(instance.numVehicles);
+		
+		for(int v = 0; v < instance.numVehicles; v++) {
+			TaskList route = solution.getTaskList(v);
+			buffer.putInt(route.size());
+			for(int k = 0; k < route.size(); k++) {
+				buffer.putInt(route.action(k));
+			}
+		}
+		
+		closeWrite(buffer, file);
+	}
+	
+	// Read a solution of the given instance. Throw an IOException if it was written for
+	// another instance, or if it is not a feasible solution of it.
+	public static Solution readSolution(File file, Instance instance) throws IOException {
+		ByteBuffer buffer = openRead(file);
+		
+		try {
+			checkHeader(buffer, SOLUTION_MAGIC, file);
+			if(buffer.getLong() != fingerprint(instance) || buffer.getInt() != instance.numTasks
+					|| buffer.getInt() != instance.numVehicles)
+				throw new IOException(file + " is a solution of another instance");
+			
+			Solution solution = new Solution(instance);
+			boolean[] seen = new boolean[2*instance.numTasks];
+			int[] vehicleOf = new int[instance.numTasks];
+			Arrays.fill(vehicleOf, -1);
+			int[] actions = new int[8];
+			int numActions = 0;
+			
+			for(int v = 0; v < instance.numVehicles; v++) {
+				int count = buffer.getInt();
+				if(count < 0 || count > 2*instance.numTasks)
+					throw new IOException(file + " has " + count + " actions for vehicle " + v);
+				if(actions.length < count)
+					actions = new int[count];
+				
+				for(int k = 0; k < count; k++) {
+					// A delivery must come after the pickup of the task by the same vehicle
+					int action = buffer.getInt();
+					if(action < 0 || action >= seen.length || seen[action]
+							|| (!Instance.isPickUp(action) && vehicleOf[Instance.taskOf(action)] != v))
+						throw new IOException(file + " has an invalid action " + action + " for vehicle " + v);
+					
+					seen[action] = true;
+					if(Instance.isPickUp(action))
+						vehicleOf[Instance.taskOf(action)] = v;
+					actions[k] = action;
+				}
+				
+				// Every pickup must be delivered by the same vehicle
+				for(int k = 0; k < count; k++) {
+					if(Instance.isPickUp(actions[k]) && !seen[actions[k] + 1])
+						throw new IOException(file + " has a task not delivered by vehicle " + v);
+				}
+				
+				solution.putRoute(v, actions, count);
+				numActions += count;
+				
+				TaskList route = solution.getTaskList(v);
+				if(!route.checkWeights() || !route.checkTimes())
+					throw new IOException(file + " is not feasible for vehicle " + v);
+			}
+			
+			if(numActions != 2*instance.numTasks)
+				throw new IOException(file + " misses " + (instance.numTasks - numActions/2) + " tasks");
+			
+			return solution;
+		}
+		catch(BufferUnderflowException exc) {
+			throw new IOException(file + " is truncated");
+		}
+	}
+	
+	// Return a hash of the tasks and vehicles of an instance, which a solution snapshot
+	// must match. The distances are left out, so that it costs O(tasks + vehicles): the
+	// same tasks and vehicles on another topology are not told apart.
+	static long fingerprint(Instance instance) {
+		long hash = mix(mix(mix(0, instance.distances.numCities), instance.numTasks), instance.numVehicles);
+		
+		for(int a = 0; a < 2*instance.numTasks; a++) {
+			hash = mix(hash, instance.actionCity[a]);
+			for(int d = 0; d < instance.numDimensions; d++) {
+				hash = mix(hash, instance.actionLoads[d][a]);
+			}
+			hash = mix(hash, Double.doubleToLongBits(instance.actionEarliest[a]));
+			hash = mix(hash, Double.doubleToLongBits(instance.actionLatest[a]));
+			hash = mix(hash, Double.doubleToLongBits(instance.actionService[a]));
+		}
+		
+		for(int v = 0; v < instance.numVehicles; v++) {
+			hash = mix(hash, instance.vehicleStart[v]);
+			for(int d = 0; d < instance.numDimensions; d++) {
+				hash = mix(hash, instance.vehicleCapacities[d][v]);
+			}
+			hash = mix(hash, Double.doubleToLongBits(instance.vehicleCostPerKm[v]));
+		}
+		
+		return hash;
+	}
+	
+	// Step of the fingerprint, with the finalizer of SplitMix64
+	private static long mix(long hash, long value) {
+		long z = (hash ^ value) + 0x9e3779b97f4a7c15L;
+		z = (z ^ (z >>> 30))*0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27))*0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	// Map the given file for reading
+	private static ByteBuffer openRead(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException(file + " is too large to be mapped");
+			
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		finally {
+			raf.close();
+		}
+	}
+	
+	// Map a temporary file of the given size next to the given one, for writing. It is
+	// renamed to the given file by closeWrite.
+	private static ByteBuffer openWrite(File file, long size) throws IOException {
+		if(size > Integer.MAX_VALUE)
+			throw new IOException(file + " would be too large to be mapped");
+		
+		File temp = temporaryFile(file);
+		RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+		try {
+			raf.setLength(size);
+			return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		finally {
+			raf.close();
+		}
+	}
+	
+	// Write the mapped temporary file to the disk and rename it to the given file
+	private static void closeWrite(ByteBuffer buffer, File file) throws IOException {
+		((MappedByteBuffer) buffer).force();
+		
+		if(buffer.hasRemaining())
+			throw new IOException("Wrote " + buffer.position() + " bytes of " + buffer.capacity() + " to " + file);
+		
+		Files.move(temporaryFile(file).toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	private static File temporaryFile(File file) {
+		return new File(file.getPath() + ".tmp");
+	}
+	
+	private static void checkHeader(ByteBuffer buffer, int magic, File file) throws IOException {
+		if(buffer.remaining() < 8 || buffer.getInt() != magic)
+			throw new IOException(file + " is not " + (magic == INSTANCE_MAGIC ? "an instance" : "a solution") + " snapshot");
+		
+		int version = buffer.getInt();
+		if(version != VERSION)
+			throw new IOException(file + " has the unsupported version " + version);
+	}
+	
+	private static int[] getInts(ByteBuffer buffer, int length) {
+		int[] values = new int[length];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + 4*length);
+		return values;
+	}
+	
+	private static double[] getDoubles(ByteBuffer buffer, int length) {
+		double[] values = new double[length];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + 8*length);
+		return values;
+	}
+	
+	private static void putInts(ByteBuffer buffer, int[] values) {
+		buffer.asIntBuffer().put(values);
+		buffer.position(buffer.position() + 4*values.length);
+	}
+	
+	private static void putDoubles(ByteBuffer buffer, double[] values) {
+		buffer.asDoubleBuffer().put(values);
+		buffer.position(buffer.position() + 8*values.length);
+	}
+}
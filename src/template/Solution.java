@@ -1,411 +1,434 @@
 package template;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import logist.plan.Plan;
 import logist.simulation.Vehicle;
-import logist.task.Task;
-import logist.topology.Topology.City;
 
 // Class representing a solution of the pickup and delivery problem for a bunch of vehicle
 // coordinated in a centralized way.
 public class Solution {
-	private Map<Vehicle, TaskList> tasksPerVehicle; // Tasks given to each vehicle
+	private static final int SAMPLE_ATTEMPTS = 8; // Random draws of sampleMove before
+	                                              // giving up on finding a feasible move
 	
-	public Solution() {
-		this.tasksPerVehicle = new HashMap<Vehicle, TaskList>();
-	}
+	private final Instance instance;
+	private TaskList[] taskLists; // Tasks given to each vehicle
+	private boolean[] owned; // Whether each list belongs to this solution only, otherwise
+	                         // it is shared with copies and copied before being modified
+	private int[] vehicleOf; // Vehicle in charge of each task, -1 if none
+	private boolean ownsVehicleOf; // Same as owned for vehicleOf
+	private double cost; // Cached cost, kept up to date by each modification
+	private long hash; // XOR of the hashes of the lists, kept up to date as the cost
 	
-	// Deep copy
-	public Solution(Solution solution) {
-		this();
-		
-		// Get a deep copy of each TaskList
-		for(Map.Entry<Vehicle, TaskList> entry : solution.tasksPerVehicle.entrySet()) {
-			Vehicle v = entry.getKey();
-			TaskList taskList = new TaskList(entry.getValue());
-			
-			this.tasksPerVehicle.put(v, taskList);
+	// Create a solution where no vehicle has any task
+	public Solution(Instance instance) {
+		this.instance = instance;
+		this.taskLists = new TaskList[instance.numVehicles];
+		this.owned = new boolean[instance.numVehicles];
+		this.vehicleOf = new int[instance.numTasks];
+		this.ownsVehicleOf = true;
+		this.cost = 0;
+		this.hash = 0;
+		
+		for(int v = 0; v < taskLists.length; v++) {
+			this.taskLists[v] = new TaskList(instance, v);
 		}
+		
+		Arrays.fill(owned, true);
+		Arrays.fill(vehicleOf, -1);
 	}
 	
-	// Set the tasks assigned to a vehicle. One task is delivered right after being picked
-	// up. The tasks are with the same order as they are in the given list
-	public void putVehicle(Vehicle vehicle, List<Task> tasks) {
-		List<OrderedTask> taskList = new ArrayList<OrderedTask>();
-		
-		for (int i = 0; i < tasks.size(); i++) {
-			taskList.add(new OrderedTask(tasks.get(i), 2*i, 2*i + 1));
-		}
-		
-		this.tasksPerVehicle.put(vehicle, new TaskList(taskList));
+	// Copy sharing the lists of the vehicles with the given solution. A shared list is
+	// copied by the first of the two solutions modifying it, so the copy only costs the
+	// lists changed afterwards instead of all of them. Both solutions must stay on the
+	// same thread, since reading a list updates its cached loads and times, see deepCopy.
+	public Solution(Solution solution) {
+		this(solution, true);
 	}
 	
-	// Get all solutions neighbour of this one.
-	public List<Solution> getNeighbours() {
-		List<Solution> neighbours = new ArrayList<Solution>();
-		
-		Random random = new Random();
-		List<Vehicle> nonEmptyVehicles = new ArrayList<Vehicle>();
-		
-		// List of vehicle with at least one task in charge
-		for(Vehicle v : tasksPerVehicle.keySet()) {
-			if(!tasksPerVehicle.get(v).tasks.isEmpty()) {
-				nonEmptyVehicles.add(v);
-			}
-		}
-		
-		// Compute the total number of tasks
-		int numberOfTasks = 0;
-		for(TaskList taskList : tasksPerVehicle.values()) {
-			numberOfTasks += taskList.tasks.size();
-		}
-		
-		// Choose one vehicle at random, weighted with the number of tasks one vehicle has
-		// in charge.
-		int rnd = random.nextInt(numberOfTasks);
-		int cummulative = 0;
-		Vehicle vehicle = null;
-		for(Map.Entry<Vehicle, TaskList> entry: tasksPerVehicle.entrySet()) {
-			cummulative += entry.getValue().tasks.size();
-			if(rnd < cummulative) {
-				vehicle = entry.getKey();
-				break;
-			}
+	private Solution(Solution solution, boolean share) {
+		this.instance = solution.instance;
+		this.taskLists = solution.taskLists.clone();
+		this.owned = new boolean[taskLists.length];
+		this.cost = solution.cost;
+		this.hash = solution.hash;
+		
+		if(share) {
+			this.vehicleOf = solution.vehicleOf;
+			this.ownsVehicleOf = false;
+			Arrays.fill(solution.owned, false);
+			solution.ownsVehicleOf = false;
 		}
-		
-		// Get all neighbour solutions with one task being reordered in its vehicle
-		int idx = random.nextInt(tasksPerVehicle.get(vehicle).tasks.size());
-		neighbours.addAll(this.getPermutatedActionNeighbours(vehicle, idx));
-		
-		// Choose another vehicle (possibly the same)
-		rnd = random.nextInt(numberOfTasks);
-		cummulative = 0;
-		for(Map.Entry<Vehicle, TaskList> entry: tasksPerVehicle.entrySet()) {
-			cummulative += entry.getValue().tasks.size();
-			if(rnd < cummulative) {
-				vehicle = entry.getKey();
-				break;
+		else {
+			this.vehicleOf = solution.vehicleOf.clone();
+			this.ownsVehicleOf = true;
+			for(int v = 0; v < taskLists.length; v++) {
+				this.taskLists[v] = new TaskList(solution.taskLists[v]);
 			}
+			Arrays.fill(owned, true);
 		}
-		
-		// Get all neighbour solutions with one task being removed from its vehicle
-		// and put anywhere in other vehicles
-		idx = random.nextInt(tasksPerVehicle.get(vehicle).tasks.size());
-		neighbours.addAll(this.getPermutatedVehicleNeighbours(vehicle, idx));
-		
-		return neighbours;
 	}
 	
-	// Get all possible neighbours which are the result of reordering one task in its
-	// vehicle.
-	private List<Solution> getPermutatedActionNeighbours(Vehicle vehicle, int idx) {
-		List<Solution> neighbours = new ArrayList<Solution>();
-		Solution neighbour;
-		
-		TaskList taskList = tasksPerVehicle.get(vehicle);
-		
-		// Get all the permutation and create one solution for each
-		for(TaskList pTaskList : taskList.getAllPermutations(vehicle.capacity(), idx)) {
-			neighbour = new Solution(this);
-			neighbour.tasksPerVehicle.put(vehicle, pTaskList);
-			
-			neighbours.add(neighbour);
-		}
-		
-		return neighbours;
+	// Return a copy sharing nothing with this solution, which can be given to another
+	// thread. This solution is only read, so it may itself be read by other threads.
+	public Solution deepCopy() {
+		return new Solution(this, false);
 	}
 	
-	private List<Solution> getPermutatedVehicleNeighbours(Vehicle v1, int idx) {
-		List<Solution> neighbours = new ArrayList<Solution>();
-		Solution neighbourTemplate = new Solution(this), neighbour;
-		
-		// Remove the idx-th task from v1 and save it
-		Task task = neighbourTemplate.tasksPerVehicle.get(v1).removeTask(idx);
-		
-		// For each vehicle
-		for(Map.Entry<Vehicle, TaskList> entry: tasksPerVehicle.entrySet()) {
-			Vehicle v2 = entry.getKey();
-			
-			// v2 has to be different from v1
-			if(v1 == v2)
-				continue;
-			
-			// Get all possible insertions of the task in v2, and create a solution for each one
-			for(TaskList pTaskList : entry.getValue().getAllInsertions(v2.capacity(), task)) {
-				neighbour = new Solution(neighbourTemplate);
-				neighbour.tasksPerVehicle.put(v2, pTaskList);
-				
-				neighbours.add(neighbour);
-			}
+	public Instance getInstance() {
+		return instance;
+	}
+	
+	// Return the index of the vehicle in charge of the given task
+	int vehicleOf(int task) {
+		return vehicleOf[task];
+	}
+	
+	// Return the list of actions of the given vehicle, which must not be modified
+	// outside of this class, see getMutableTaskList
+	TaskList getTaskList(int vehicle) {
+		return taskLists[vehicle];
+	}
+	
+	// Return the list of actions of the given vehicle, copied first if it is shared with
+	// another solution. It may be modified outside of this class only for a removal
+	// undone right after, which must not be seen by the copies either.
+	TaskList getMutableTaskList(int vehicle) {
+		if(!owned[vehicle]) {
+			taskLists[vehicle] = new TaskList(taskLists[vehicle]);
+			owned[vehicle] = true;
 		}
 		
-		return neighbours;
+		return taskLists[vehicle];
 	}
 	
-	// Return the cost of this solution.
-	public double getCost() {
-		double cost = 0;
-		
-		for(Map.Entry<Vehicle, TaskList> entry : tasksPerVehicle.entrySet()) {
-			Vehicle v = entry.getKey();
-			TaskList taskList = entry.getValue();
-			
-			cost += v.costPerKm()*taskList.getDistance(v.getCurrentCity());
+	// Return the vehicle of each task, copied first if it is shared with another solution
+	private int[] mutableVehicleOf() {
+		if(!ownsVehicleOf) {
+			vehicleOf = vehicleOf.clone();
+			ownsVehicleOf = true;
 		}
 		
-		return cost;
+		return vehicleOf;
 	}
 	
-	// Return the plan of each vehicle corresponding to this solution.
-	public Map<Vehicle, Plan> getPlans() {
-		Map<Vehicle, Plan> plans = new HashMap<Vehicle, Plan>();
+	// Set the tasks assigned to a vehicle. One task is delivered right after being picked
+	// up. The tasks are with the same order as they are in the given list
+	public void putVehicle(int vehicle, List<Integer> tasks) {
+		TaskList old = this.taskLists[vehicle];
+		int[] vehicleOf = this.mutableVehicleOf();
+		for(int k = 0; k < old.size(); k++) {
+			vehicleOf[Instance.taskOf(old.action(k))] = -1;
+		}
 		
-		for(Map.Entry<Vehicle, TaskList> entry : tasksPerVehicle.entrySet()) {
-			Vehicle v = entry.getKey();
-			TaskList taskList = entry.getValue();
-			
-			Plan plan = taskList.getPlan(v.getCurrentCity());
-			plans.put(v, plan);
+		TaskList taskList = new TaskList(instance, vehicle, tasks);
+		for(int t : tasks) {
+			vehicleOf[t] = vehicle;
 		}
 		
-		return plans;
+		this.taskLists[vehicle] = taskList;
+		this.owned[vehicle] = true;
+		this.cost += instance.vehicleCostPerKm[vehicle]*(taskList.distance - old.distance);
+		this.hash ^= old.getHash() ^ taskList.getHash();
 	}
 	
-	// Return a string describing the solution
-	public String toString() {
-		String msg = "Total cost : " + this.getCost() + "\n";
+	// Set the actions of a vehicle to the first count given actions, in this order. Every
+	// pickup must be before its delivery.
+	public void putRoute(int vehicle, int[] actions, int count) {
+		TaskList old = this.taskLists[vehicle];
+		int[] vehicleOf = this.mutableVehicleOf();
+		for(int k = 0; k < old.size(); k++) {
+			vehicleOf[Instance.taskOf(old.action(k))] = -1;
+		}
 		
-		for(Map.Entry<Vehicle, TaskList> entry : tasksPerVehicle.entrySet()) {
-			Vehicle v = entry.getKey();
-			TaskList taskList = entry.getValue();
-			msg += "Vehicle " + v.id() + " : ";
-			for(TaskAction a : taskList.actions) {
-				msg += a.isPickUp ? "Pickup " : "Deliver ";
-				msg += a.task.task.id + ", ";
-			}
-			msg += "\n";
+		TaskList taskList = new TaskList(instance, vehicle, actions, count);
+		for(int k = 0; k < count; k++) {
+			vehicleOf[Instance.taskOf(actions[k])] = vehicle;
 		}
 		
-		return msg;
+		this.taskLists[vehicle] = taskList;
+		this.owned[vehicle] = true;
+		this.cost += instance.vehicleCostPerKm[vehicle]*(taskList.distance - old.distance);
+		this.hash ^= old.getHash() ^ taskList.getHash();
 	}
 	
+	// Fill the given list with the moves leading to the neighbours of this solution.
+	// The solution itself is left untouched, the moves only describe the changes and
+	// their difference of cost.
+	public void getNeighbours(SplittableRandom random, MoveList moves) {
+		moves.clear();
+		
+		if(instance.numTasks == 0)
+			return;
+		
+		// Get all neighbour solutions with one task chosen at random being reordered
+		// in its vehicle
+		int task = random.nextInt(instance.numTasks);
+		this.getPermutatedActionNeighbours(task, moves);
+		
+		// Get all neighbour solutions with another task (possibly the same) being
+		// removed from its vehicle and put anywhere in other vehicles
+		task = random.nextInt(instance.numTasks);
+		this.getPermutatedVehicleNeighbours(task, moves);
+	}
 	
-	
-	
-	
-	// Class representing a list of tasks and the order in which they are picked up
-	// and delivered.
-	private class TaskList {
-		public List<OrderedTask> tasks; // List of tasks
-		public List<TaskAction> actions; // List of pickup and delivery actions
-		
-		public TaskList(List<OrderedTask> tasks) {
-			this.tasks = new ArrayList<OrderedTask>(tasks);
-			this.actions = new ArrayList<TaskAction>();
-			for(int i = 0; i < 2*tasks.size(); i++)
-				this.actions.add(null);
+	// Add all the moves reordering the given task in its own vehicle.
+	private void getPermutatedActionNeighbours(int task, MoveList moves) {
+		int vehicle = vehicleOf[task];
+		TaskList taskList = this.getMutableTaskList(vehicle);
+		double costPerKm = instance.vehicleCostPerKm[vehicle];
+		
+		int pickUpOrder = taskList.indexOf(Instance.pickUp(task));
+		int deliverOrder = taskList.indexOf(Instance.delivery(task));
+		double distance = taskList.distance;
+		
+		// Remove the task for the time of the enumeration, the insertion orders are
+		// then relative to the list without the task as when the move is applied
+		double removalDelta = taskList.removalDelta(pickUpOrder, deliverOrder);
+		taskList.removeTask(task);
+		
+		for(int i = 0; i < taskList.size() + 1; i++) {
+			int last = taskList.lastDeliverOrder(task, i);
 			
-			for(OrderedTask t : tasks) {
-				TaskAction pickUp = new TaskAction(t, true);
-				TaskAction delivery = new TaskAction(t, false);
+			for(int j = i + 1; j <= last; j++) {
+				if(!taskList.canDeliverAt(task, i, j))
+					continue;
 				
-				this.actions.set(t.pickUpOrder, pickUp);
-				this.actions.set(t.deliverOrder, delivery);
+				double delta = removalDelta + taskList.insertionDelta(task, i, j);
+				moves.add(vehicle, task, vehicle, i, j, costPerKm*delta);
 			}
 		}
 		
-		// Create a deep copy
-		public TaskList(TaskList taskList) {
-			this.tasks = new ArrayList<OrderedTask>();
-			
-			// Create a deep copy of each ordered task and add them to the new TaskList
-			for(OrderedTask t : taskList.tasks) {
-				this.tasks.add(new OrderedTask(t));
-			}
-
-			this.actions = new ArrayList<TaskAction>();
-			// Prefill the actions list
-			for(int i = 0; i < 2*tasks.size(); i++)
-				this.actions.add(null);
-			
-			// Create pickup and delivery actions for each task and add them to the actions list
-			for(OrderedTask t : tasks) {
-				TaskAction pickUp = new TaskAction(t, true);
-				TaskAction delivery = new TaskAction(t, false);
-				
-				this.actions.set(t.pickUpOrder, pickUp);
-				this.actions.set(t.deliverOrder, delivery);
-			}
-		}
+		// Put the task back where it was
+		taskList.insertTask(task, pickUpOrder, deliverOrder);
+		taskList.distance = distance;
+	}
+	
+	// Add all the moves removing the given task from its vehicle and inserting it
+	// anywhere in another vehicle.
+	private void getPermutatedVehicleNeighbours(int task, MoveList moves) {
+		int v1 = vehicleOf[task];
+		TaskList v1TaskList = taskLists[v1];
+		double removalDelta = instance.vehicleCostPerKm[v1]*v1TaskList.removalDelta(
+				v1TaskList.indexOf(Instance.pickUp(task)), v1TaskList.indexOf(Instance.delivery(task)));
 		
-		// Get all possible permutations of one task (both pickup and delivery)
-		public List<TaskList> getAllPermutations(int vehicleCapacity, int taskIdx) {
-			TaskList permuted = new TaskList(this);
-			
-			Task task = permuted.removeTask(taskIdx);
+		// For each vehicle
+		for(int v2 = 0; v2 < taskLists.length; v2++) {
+			// v2 has to be different from v1
+			if(v1 == v2)
+				continue;
 			
-			return permuted.getAllInsertions(vehicleCapacity, task);
-		}
-		
-		// Get all possible insertions of a task.
-		public List<TaskList> getAllInsertions(int vehicleCapacity, Task task) {
-			List<TaskList> insertions = new ArrayList<TaskList>();
-			TaskList insertion;
+			TaskList v2TaskList = taskLists[v2];
+			double costPerKm = instance.vehicleCostPerKm[v2];
 			
-			for(int i = 0; i < actions.size() + 1; i++) {
-				for(int j = i + 1; j < actions.size() + 2; j++) {
-					insertion = new TaskList(this);
-					
-					insertion.insertTask(task, i, j);
+			// Get all possible insertions of the task in v2, the delivery orders which
+			// would exceed the capacity are skipped all at once, and the ones which would
+			// miss the time windows one by one
+			for(int i = 0; i < v2TaskList.size() + 1; i++) {
+				int last = v2TaskList.lastDeliverOrder(task, i);
+				
+				for(int j = i + 1; j <= last; j++) {
+					if(!v2TaskList.canDeliverAt(task, i, j))
+						continue;
 					
-					if(insertion.checkWeights(vehicleCapacity))
-						insertions.add(insertion);
+					double delta = removalDelta + costPerKm*v2TaskList.insertionDelta(task, i, j);
+					moves.add(v1, task, v2, i, j, delta);
 				}
 			}
-			
-			return insertions;
 		}
-		
-		// Check if the actions are feasible with the given capacity
-		public boolean checkWeights(int vehicleCapacity) {
-			int weight = 0;
+	}
+	
+	// Fill the given list with a single move drawn at random: a random task inserted at a
+	// random feasible place of a random vehicle (possibly its own). This costs a few
+	// microseconds instead of the scan of every insertion of getNeighbours. Return false
+	// if no feasible move was found within a few attempts.
+	public boolean sampleMove(SplittableRandom random, MoveList moves) {
+		moves.clear();
+		
+		if(instance.numTasks == 0)
+			return false;
+		
+		for(int attempt = 0; attempt < SAMPLE_ATTEMPTS; attempt++) {
+			int task = random.nextInt(instance.numTasks);
+			int v1 = vehicleOf[task], v2 = random.nextInt(taskLists.length);
+			TaskList v1TaskList = taskLists[v1], v2TaskList = taskLists[v2];
+			int pickUpOrder = v1TaskList.indexOf(Instance.pickUp(task));
+			int deliverOrder = v1TaskList.indexOf(Instance.delivery(task));
+			double removalDelta = v1TaskList.removalDelta(pickUpOrder, deliverOrder);
 			
-			for(TaskAction a : actions) {
-				weight += a.isPickUp ? a.task.task.weight : -a.task.task.weight;
-				if(weight > vehicleCapacity)
-					return false;
+			// A reordering is scored on the list without the task, as in
+			// getPermutatedActionNeighbours
+			double distance = v1TaskList.distance;
+			if(v1 == v2) {
+				v1TaskList = this.getMutableTaskList(v1);
+				v2TaskList = v1TaskList;
+				v1TaskList.removeTask(task);
 			}
 			
-			return true;
-		}
-		
-		// Insert the given task with the given pickup and delivery order
-		public void insertTask(Task task, int pickUpOrder, int deliverOrder) {
-			OrderedTask oTask = new OrderedTask(task, pickUpOrder, deliverOrder);
-			TaskAction pickUp = new TaskAction(oTask, true);
-			TaskAction deliver = new TaskAction(oTask, false);
-			
-			this.tasks.add(oTask);
-			this.actions.add(pickUpOrder, pickUp);
-			this.actions.add(deliverOrder, deliver);
-			
-			for(int i = pickUpOrder + 1; i < actions.size(); i++) {
-				this.actions.get(i).setOrder(i);
+			int i = random.nextInt(v2TaskList.size() + 1);
+			int last = v2TaskList.lastDeliverOrder(task, i);
+			int j = last > i ? i + 1 + random.nextInt(last - i) : -1;
+			if(j > 0 && v2TaskList.canDeliverAt(task, i, j)) {
+				double insertionDelta = v2TaskList.insertionDelta(task, i, j);
+				double delta = v1 == v2
+						? instance.vehicleCostPerKm[v1]*(removalDelta + insertionDelta)
+						: instance.vehicleCostPerKm[v1]*removalDelta + instance.vehicleCostPerKm[v2]*insertionDelta;
+				moves.add(v1, task, v2, i, j, delta);
 			}
-		}
-		
-		// Remove the idx-th task from the list.
-		public Task removeTask(int idx) {			
-			OrderedTask task = this.tasks.remove(idx);
-			this.actions.remove(task.deliverOrder);
-			this.actions.remove(task.pickUpOrder);
 			
-			for(int i = task.pickUpOrder; i < actions.size(); i++) {
-				this.actions.get(i).setOrder(i);
+			if(v1 == v2) {
+				v1TaskList.insertTask(task, pickUpOrder, deliverOrder);
+				v1TaskList.distance = distance;
 			}
 			
-			return task.task;
+			if(!moves.isEmpty())
+				return true;
 		}
 		
-		// Return the distance to pick up and deliver all tasks, starting in the
-		// provided city
-		public double getDistance(City currentCity) {
-			double dist = 0;
-			
-			City lastCity = currentCity;
-			for(TaskAction a : actions) {
-				dist += a.getCity().distanceTo(lastCity);
-				lastCity = a.getCity();
-			}
-			
-			return dist;
-		}
-		
-		// Return the corresponding plan.
-		public Plan getPlan(City initCity) {
-			Plan plan = new Plan(initCity);
-			
-			City lastCity = initCity;
-			for(TaskAction a : this.actions) {
-				List<City> path = lastCity.pathTo(a.getCity());
-				
-				for(City c : path) {
-					plan.appendMove(c);
-				}
-				
-				if(a.isPickUp) {
-					plan.appendPickup(a.task.task);
-				}
-				else {
-					plan.appendDelivery(a.task.task);
-				}
-				
-				lastCity = a.getCity();
-			}
-			
-			return plan;
-		}
+		return false;
 	}
 	
+	// Apply the k-th move of the given list to this solution. The list must have been
+	// filled by this solution and it must not have been modified since.
+	public void applyMove(MoveList moves, int k) {
+		this.applyMove(moves.task(k), moves.toVehicle(k), moves.pickUpOrder(k), moves.deliverOrder(k));
+	}
 	
+	// Move the given task to the given vehicle (possibly the same) with the given
+	// pickup and delivery order, relative to the list of that vehicle without the task.
+	public void applyMove(int task, int v2, int pickUpOrder, int deliverOrder) {
+		int v1 = vehicleOf[task];
+		TaskList v1TaskList = this.getMutableTaskList(v1);
+		TaskList v2TaskList = this.getMutableTaskList(v2);
+		
+		double oldDistance1 = v1TaskList.distance;
+		this.hash ^= v1TaskList.getHash();
+		v1TaskList.removeTask(task);
+		this.cost += instance.vehicleCostPerKm[v1]*(v1TaskList.distance - oldDistance1);
+		this.hash ^= v1TaskList.getHash();
+		
+		double oldDistance2 = v2TaskList.distance;
+		this.hash ^= v2TaskList.getHash();
+		v2TaskList.insertTask(task, pickUpOrder, deliverOrder);
+		this.cost += instance.vehicleCostPerKm[v2]*(v2TaskList.distance - oldDistance2);
+		this.hash ^= v2TaskList.getHash();
+		
+		this.mutableVehicleOf()[task] = v2;
+	}
 	
+	// Insert a task which no vehicle is in charge of into the given vehicle, with the
+	// given pickup and delivery order.
+	public void insertTask(int task, int vehicle, int pickUpOrder, int deliverOrder) {
+		TaskList taskList = this.getMutableTaskList(vehicle);
+		
+		double oldDistance = taskList.distance;
+		this.hash ^= taskList.getHash();
+		taskList.insertTask(task, pickUpOrder, deliverOrder);
+		this.cost += instance.vehicleCostPerKm[vehicle]*(taskList.distance - oldDistance);
+		this.hash ^= taskList.getHash();
+		
+		this.mutableVehicleOf()[task] = vehicle;
+	}
 	
+	// Remove a task from its vehicle, leaving it to no vehicle
+	public void removeTask(int task) {
+		int vehicle = vehicleOf[task];
+		TaskList taskList = this.getMutableTaskList(vehicle);
+		
+		double oldDistance = taskList.distance;
+		this.hash ^= taskList.getHash();
+		taskList.removeTask(task);
+		this.cost += instance.vehicleCostPerKm[vehicle]*(taskList.distance - oldDistance);
+		this.hash ^= taskList.getHash();
+		
+		this.mutableVehicleOf()[task] = -1;
+	}
 	
-	// Class representing a task and the indexes at which it is picked up and delivered.
-	private class OrderedTask {
-		public final Task task;
-		public int pickUpOrder;
-		public int deliverOrder;
-		
-		public OrderedTask(Task task, int pickUpOrder, int deliverOrder) {
-			this.task = task;
-			this.pickUpOrder = pickUpOrder;
-			this.deliverOrder = deliverOrder;
-		}
+	// Improve the order of the actions of the given vehicle with 2-opt and Or-opt moves,
+	// see TaskList.improve. Return the difference of cost.
+	public double improveRoute(int vehicle) {
+		TaskList taskList = this.getMutableTaskList(vehicle);
+		long oldHash = taskList.getHash();
+		double delta = instance.vehicleCostPerKm[vehicle]*taskList.improve();
 		
-		// Deep copy
-		public OrderedTask(OrderedTask task) {
-			this(task.task, task.pickUpOrder, task.deliverOrder);
-		}
-	}	
+		this.cost += delta;
+		this.hash ^= oldHash ^ taskList.getHash();
+		
+		return delta;
+	}
 	
+	// Improve the order of the actions of every vehicle, e.g. as a final polish of the
+	// best solution. Return the difference of cost.
+	public double improveRoutes() {
+		double delta = 0;
+		
+		for(int v = 0; v < taskLists.length; v++) {
+			delta += this.improveRoute(v);
+		}
+		
+		return delta;
+	}
 	
+	// Return the cost of this solution. The cost is maintained incrementally, so this
+	// is O(1).
+	public double getCost() {
+		return cost;
+	}
 	
+	// Recompute the cost from scratch by walking every action of every vehicle. Only
+	// meant to check the incremental cost.
+	public double computeCost() {
+		double cost = 0;
+		
+		for(int v = 0; v < taskLists.length; v++) {
+			cost += instance.vehicleCostPerKm[v]*taskLists[v].getDistance();
+		}
+		
+		return cost;
+	}
 	
+	// Return the 64-bit hash of this solution, the XOR of the hashes of the lists of the
+	// vehicles, see TaskList. Two solutions with the same routes have the same hash
+	// however they were reached. It is maintained incrementally, so this is O(1).
+	public long getHash() {
+		return hash;
+	}
 	
-	// Class representing an action for a task, i.e. pick it up or deliver it.
-	private class TaskAction {
-		public final OrderedTask task;
-		public final boolean isPickUp;
-		
-		public TaskAction(OrderedTask task, boolean isPickUp) {
-			this.task = task;
-			this.isPickUp = isPickUp;
+	// Recompute the hash from scratch. Only meant to check the incremental hash.
+	public long computeHash() {
+		long hash = 0;
+		
+		for(int v = 0; v < taskLists.length; v++) {
+			hash ^= taskLists[v].computeHash();
 		}
 		
-		// Set the order of the action in its list.
-		public void setOrder(int i) {
-			if(isPickUp) {
-				this.task.pickUpOrder = i;
-			}
-			else {
-				this.task.deliverOrder = i;
-			}
+		return hash;
+	}
+	
+	// Return the plan of each vehicle corresponding to this solution.
+	public Map<Vehicle, Plan> getPlans() {
+		Map<Vehicle, Plan> plans = new HashMap<Vehicle, Plan>();
+		
+		for(int v = 0; v < taskLists.length; v++) {
+			Plan plan = taskLists[v].getPlan();
+			plans.put(instance.vehicles[v], plan);
 		}
 		
-		// Get the city in which the action must be performed.
-		public City getCity() {
-			if(isPickUp) {
-				return task.task.pickupCity;
-			}
-			else {
-				return task.task.deliveryCity;
-			}
+		return plans;
+	}
+	
+	// Return a string describing the solution
+	public String toString() {
+		String msg = "Total cost : " + this.getCost() + "\n";
+		
+		for(int v = 0; v < taskLists.length; v++) {
+			msg += "Vehicle " + v + " : " + taskLists[v] + "\n";
 		}
+		
+		return msg;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,298 @@
+package template;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Telemetry of a search: time spent in each phase, counters of the iterations and of
+// the scored neighbours, bytes allocated by the search thread and the cost of the best
+// solution over time. The search updates it as it goes, on a single thread, and it can
+// be read at any time from that thread, or dumped as JSON and CSV after the run.
+public class SolverStats {
+	// Phases the time of a search is split in
+	public enum Phase {
+		GENERATION, // Choosing the moved tasks and enumerating the units to score
+		SCORING, // Computing the difference of cost of every neighbour
+		ACCEPTANCE, // Choosing the next solution among the best neighbours and applying it
+		PERTURBATION, // Random steps taken out of local minima
+		DESTROY, // Removing tasks from a solution, in a large neighbourhood search
+		REPAIR, // Inserting them back
+		PLAN_BUILDING // Converting the best solution to logist plans
+	}
+	
+	private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+	
+	private final long[] phaseNanos = new long[Phase.values().length];
+	private long neighbours; // Number of neighbours scored
+	private long accepted, rejected, perturbations; // Iterations by outcome
+	private long cacheHits, cacheMisses, cacheEvictions; // See EvaluationCache
+	
+	// Time and memory of the run, measured on the thread that started it
+	private long startNanos, stopNanos;
+	private long threadId;
+	private long startBytes, allocatedBytes = -1;
+	private boolean running;
+	
+	// Cost of the best solution each time it improved, with the time in nanoseconds
+	// since the start and the iteration
+	private long[] traceNanos = new long[64];
+	private int[] traceIter = new int[64];
+	private double[] traceCost = new double[64];
+	private int traceSize;
+	
+	// Start the clock, and the allocation counter of the calling thread
+	public void start() {
+		this.startNanos = System.nanoTime();
+		this.threadId = Thread.currentThread().getId();
+		this.startBytes = THREADS != null ? THREADS.getThreadAllocatedBytes(threadId) : -1;
+		this.running = true;
+	}
+	
+	// Stop the clock. The allocated bytes are known only if called from the thread that
+	// started the run.
+	public void stop() {
+		this.stopNanos = System.nanoTime();
+		this.running = false;
+		
+		if(startBytes >= 0 && Thread.currentThread().getId() == threadId)
+			this.allocatedBytes = THREADS.getThreadAllocatedBytes(threadId) - startBytes;
+	}
+	
+	public void addPhase(Phase phase, long nanos) {
+		phaseNanos[phase.ordinal()] += nanos;
+	}
+	
+	public void addNeighbours(long count) {
+		neighbours += count;
+	}
+	
+	// Iteration moving to a neighbour
+	public void onAccept() {
+		accepted++;
+	}
+	
+	// Iteration keeping the current solution
+	public void onReject() {
+		rejected++;
+	}
+	
+	// Iteration performing a perturbation
+	public void onPerturbation() {
+		perturbations++;
+	}
+	
+	// Add the counters of a cache used by the search
+	public void addCache(EvaluationCache cache) {
+		cacheHits += cache.getHits();
+		cacheMisses += cache.getMisses();
+		cacheEvictions += cache.getEvictions();
+	}
+	
+	// Record a new best solution found at the given iteration
+	public void onBest(int iter, double cost) {
+		if(traceSize == traceCost.length) {
+			int capacity = 2*traceSize;
+			traceNanos = Arrays.copyOf(traceNanos, capacity);
+			traceIter = Arrays.copyOf(traceIter, capacity);
+			traceCost = Arrays.copyOf(traceCost, capacity);
+		}
+		
+		traceNanos[traceSize] = System.nanoTime() - startNanos;
+		traceIter[traceSize] = iter;
+		traceCost[traceSize] = cost;
+		traceSize++;
+	}
+	
+	// Add the counters, phase times and allocations of another search, e.g. an island.
+	// The trace is not merged.
+	public void add(SolverStats other) {
+		for(int p = 0; p < phaseNanos.length; p++) {
+			phaseNanos[p] += other.phaseNanos[p];
+		}
+		neighbours += other.neighbours;
+		accepted += other.accepted;
+		rejected += other.rejected;
+		perturbations += other.perturbations;
+		cacheHits += other.cacheHits;
+		cacheMisses += other.cacheMisses;
+		cacheEvictions += other.cacheEvictions;
+		allocatedBytes = allocatedBytes >= 0 && other.allocatedBytes >= 0
+				? allocatedBytes + other.allocatedBytes : -1;
+	}
+	
+	public long getPhaseNanos(Phase phase) {
+		return phaseNanos[phase.ordinal()];
+	}
+	
+	public long getNeighbours() {
+		return neighbours;
+	}
+	
+	public long getAccepted() {
+		return accepted;
+	}
+	
+	public long getRejected() {
+		return rejected;
+	}
+	
+	public long getPerturbations() {
+		return perturbations;
+	}
+	
+	public long getCacheHits() {
+		return cacheHits;
+	}
+	
+	public long getCacheMisses() {
+		return cacheMisses;
+	}
+	
+	public long getCacheEvictions() {
+		return cacheEvictions;
+	}
+	
+	public long getIterations() {
+		return accepted + rejected + perturbations;
+	}
+	
+	// Return the time since the start, up to the stop if the run is over
+	public long getElapsedNanos() {
+		return (running ? System.nanoTime() : stopNanos) - startNanos;
+	}
+	
+	public double getNeighboursPerSecond() {
+		long elapsed = this.getElapsedNanos();
+		return elapsed > 0 ? neighbours*1e9/elapsed : 0;
+	}
+	
+	// Return the bytes allocated by the search thread during the run, or -1 if unknown
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+	
+	public double getAllocatedBytesPerIteration() {
+		long iterations = this.getIterations();
+		return allocatedBytes >= 0 && iterations > 0 ? (double) allocatedBytes/iterations : -1;
+	}
+	
+	public int getTraceSize() {
+		return traceSize;
+	}
+	
+	public double getTraceMillis(int k) {
+		return traceNanos[k]/1e6;
+	}
+	
+	public int getTraceIter(int k) {
+		return traceIter[k];
+	}
+	
+	public double getTraceCost(int k) {
+		return traceCost[k];
+	}
+	
+	// Write the counters and phase times as a JSON object, and the trace as CSV, to
+	// <name>.json and <name>-trace.csv in the given directory
+	public void dump(File dir, String name) throws IOException {
+		dir.mkdirs();
+		
+		PrintWriter json = new PrintWriter(new FileWriter(new File(dir, name + ".json")));
+		try {
+			this.writeJson(json);
+		}
+		finally {
+			json.close();
+		}
+		
+		PrintWriter csv = new PrintWriter(new FileWriter(new File(dir, name + "-trace.csv")));
+		try {
+			this.writeTraceCsv(csv);
+		}
+		finally {
+			csv.close();
+		}
+	}
+	
+	public void writeJson(PrintWriter out) {
+		out.println("{");
+		out.println("  \"elapsed_ms\": " + format(this.getElapsedNanos()/1e6) + ",");
+		out.println("  \"iterations\": " + this.getIterations() + ",");
+		out.println("  \"accepted\": " + accepted + ",");
+		out.println("  \"rejected\": " + rejected + ",");
+		out.println("  \"perturbations\": " + perturbations + ",");
+		out.println("  \"neighbours\": " + neighbours + ",");
+		out.println("  \"neighbours_per_second\": " + format(this.getNeighboursPerSecond()) + ",");
+		out.println("  \"allocated_bytes\": " + (allocatedBytes >= 0 ? allocatedBytes : "null") + ",");
+		out.println("  \"allocated_bytes_per_iteration\": "
+				+ (allocatedBytes >= 0 ? format(this.getAllocatedBytesPerIteration()) : "null") + ",");
+		out.println("  \"cache_hits\": " + cacheHits + ",");
+		out.println("  \"cache_misses\": " + cacheMisses + ",");
+		out.println("  \"cache_evictions\": " + cacheEvictions + ",");
+		out.println("  \"phase_ms\": {");
+		for(Phase phase : Phase.values()) {
+			out.println("    \"" + phase.name().toLowerCase(Locale.ROOT) + "\": "
+					+ format(phaseNanos[phase.ordinal()]/1e6)
+					+ (phase.ordinal() < phaseNanos.length - 1 ? "," : ""));
+		}
+		out.println("  },");
+		out.println("  \"best_cost\": " + (traceSize > 0 ? format(traceCost[traceSize - 1]) : "null"));
+		out.println("}");
+	}
+	
+	public void writeTraceCsv(PrintWriter out) {
+		out.println("time_ms,iter,best_cost");
+		for(int k = 0; k < traceSize; k++) {
+			out.println(format(this.getTraceMillis(k)) + "," + traceIter[k] + "," + format(traceCost[k]));
+		}
+	}
+	
+	@Override
+	public String toString() {
+		long elapsed = Math.max(1, this.getElapsedNanos());
+		StringBuilder str = new StringBuilder();
+		
+		str.append(this.getIterations() + " iter (" + accepted + " accepted, " + rejected
+				+ " rejected, " + perturbations + " perturbations), "
+				+ (long) this.getNeighboursPerSecond() + " neighbours/s");
+		if(allocatedBytes >= 0)
+			str.append(", " + (long) this.getAllocatedBytesPerIteration() + " B/iter");
+		if(cacheHits + cacheMisses > 0) {
+			str.append(", cache " + cacheHits + " hits, " + cacheMisses + " misses, "
+					+ cacheEvictions + " evictions");
+		}
+		for(Phase phase : Phase.values()) {
+			str.append(", " + phase.name().toLowerCase(Locale.ROOT) + " "
+					+ Math.round(100.0*phaseNanos[phase.ordinal()]/elapsed) + "%");
+		}
+		
+		return str.toString();
+	}
+	
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+	
+	// Return the bean measuring the allocations of a thread, or null if the JVM can't
+	private static com.sun.management.ThreadMXBean threadBean() {
+		try {
+			java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if(!(bean instanceof com.sun.management.ThreadMXBean))
+				return null;
+			
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if(!sunBean.isThreadAllocatedMemorySupported())
+				return null;
+			sunBean.setThreadAllocatedMemoryEnabled(true);
+			
+			return sunBean;
+		}
+		catch(UnsupportedOperationException exc) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package template;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+// Class running one trajectory of the stochastic local search, one iteration at a time.
+// At each iteration the best neighbour is taken, or the current solution is kept with a
+// certain probability if this neighbour is worse. After some iterations without any
+// improvement of the local best solution, a few random steps are performed instead.
+// Optionally, moving a task back where it was stays tabu for some iterations, unless it
+// leads to a new best solution, so that the search doesn't cycle between the same few
+// solutions. Optionally again, the routes changed by each move are improved with 2-opt
+// and Or-opt moves, see TaskList.improve. Finally, the moves to other vehicles may be
+// restricted to the insertions near the cities of the task, the granular neighbourhood,
+// until the search stagnates.
+public class StochasticLocalSearch {
+	// Parameters
+	private final SplittableRandom random;
+	private final double randomFactor; // Probability to keep the current solution if the
+	                                   // best neighbour is worse
+	private final int maxLocalStagnationIter; // Number of iterations with no improvement of
+	                                          // the local best solution before a perturbation
+	private final int pertubationSteps; // Number of random steps of a perturbation
+	private boolean polishMoves; // Whether to improve the routes changed by each move
+	private NearestCities nearest; // Cities of the granular neighbourhood, or null
+	private int escapeIter; // Iterations without improvement of the local best solution
+	                        // before going back to the full neighbourhood
+	
+	// State of the search
+	private Solution current, best;
+	private double cost, bestCost, localBestCost;
+	private int iter, stagnationIter, localStagnationIter;
+	
+	private final MoveList moves; // Moves of the perturbations
+	private final NeighbourhoodEvaluator evaluator;
+	private final TabuList tabu; // Tabu moves, null without tabu
+	private final SolverStats stats;
+	
+	public StochasticLocalSearch(Solution initSolution, SplittableRandom random, ForkJoinPool pool,
+			double randomFactor, int maxLocalStagnationIter, int pertubationSteps) {
+		this(initSolution, random, pool, randomFactor, maxLocalStagnationIter, pertubationSteps, 0);
+	}
+	
+	// tabuTenure: number of iterations a task may not go back where it was, 0 for none
+	public StochasticLocalSearch(Solution initSolution, SplittableRandom random, ForkJoinPool pool,
+			double randomFactor, int maxLocalStagnationIter, int pertubationSteps, int tabuTenure) {
+		this.random = random;
+		this.randomFactor = randomFactor;
+		this.maxLocalStagnationIter = maxLocalStagnationIter;
+		this.pertubationSteps = pertubationSteps;
+		
+		// The initial solution may be shared by the islands
+		this.current = initSolution.deepCopy();
+		this.best = new Solution(current);
+		this.cost = initSolution.getCost();
+		this.bestCost = cost;
+		this.localBestCost = Double.POSITIVE_INFINITY;
+		this.iter = 0;
+		this.stagnationIter = 0;
+		this.localStagnationIter = 0;
+		
+		this.moves = new MoveList();
+		this.evaluator = new NeighbourhoodEvaluator(pool);
+		this.tabu = tabuTenure > 0 ? new TabuList(tabuTenure,
+				initSolution.getInstance().numTasks, initSolution.getInstance().numVehicles) : null;
+		this.stats = new SolverStats();
+		stats.start();
+		stats.onBest(0, bestCost);
+	}
+	
+	// Perform one iteration. Return false if the current solution has no neighbour.
+	public boolean step() {
+		if(tabu != null)
+			tabu.tick();
+		
+		// If we are trapped in a local minima
+		if(localStagnationIter >= maxLocalStagnationIter) {
+			long start = System.nanoTime();
+			
+			// Perform some random steps
+			for(int i = 0; i < pertubationSteps; i++) {
+				current.getNeighbours(random, moves);
+				if(moves.isEmpty())
+					return false;
+				
+				int randomID = random.nextInt(moves.size());
+				current.applyMove(moves, randomID);
+			}
+			
+			localStagnationIter = 0;
+			cost = current.getCost();
+			localBestCost = cost;
+			
+			stats.onPerturbation();
+			stats.addPhase(SolverStats.Phase.PERTURBATION, System.nanoTime() - start);
+		}
+		else {
+			double oldCost = cost;
+			long start = System.nanoTime();
+			
+			// Find the lowest difference of cost among the neighbours of the current
+			// solution which are not tabu or lead to a new best solution, and how many
+			// moves reach it. If every neighbour is tabu, the tabu list is ignored.
+			evaluator.setNearestCities(localStagnationIter < escapeIter ? nearest : null);
+			boolean found = tabu != null
+					? evaluator.evaluate(current, random, tabu, bestCost - oldCost)
+					: evaluator.evaluate(current, random);
+			if(!found && tabu != null)
+				found = evaluator.evaluate(current, random);
+			long evaluated = System.nanoTime();
+			stats.addPhase(SolverStats.Phase.GENERATION, evaluated - start - evaluator.getScoringNanos());
+			stats.addPhase(SolverStats.Phase.SCORING, evaluator.getScoringNanos());
+			stats.addNeighbours(evaluator.getNeighbourCount());
+			if(!found)
+				return false;
+			double bestNeighbourCost = oldCost + evaluator.getBestDelta();
+			
+			// If this cost is still higher than the current cost, keep the current
+			// solution with a certain probability
+			if(bestNeighbourCost > oldCost && random.nextDouble() < randomFactor) {
+				cost = oldCost;
+				stats.onReject();
+			}
+			else {
+				// Otherwise apply one of the best moves chosen at random
+				int id = random.nextInt(evaluator.getBestCount());
+				evaluator.applyBestMove(id);
+				if(polishMoves) {
+					current.improveRoute(evaluator.getToVehicle());
+					if(evaluator.getFromVehicle() != evaluator.getToVehicle())
+						current.improveRoute(evaluator.getFromVehicle());
+				}
+				cost = current.getCost();
+				stats.onAccept();
+			}
+			
+			stats.addPhase(SolverStats.Phase.ACCEPTANCE, System.nanoTime() - evaluated);
+		}
+		
+		// If the new cost is better than the local best one, update the local best
+		// one and reset the local stagnation counter
+		if(cost < localBestCost) {
+			localBestCost = cost;
+			localStagnationIter = 0;
+		}
+		
+		// If the new cost is better than the overall best one, update the overall
+		// best one and reset the stagnation counter
+		if(cost < bestCost) {
+			best = new Solution(current);
+			bestCost = cost;
+			stagnationIter = 0;
+			stats.onBest(iter + 1, bestCost);
+		}
+		
+		iter++;
+		stagnationIter++;
+		localStagnationIter++;
+		
+		return true;
+	}
+	
+	// Restart from the best solution, with a perturbation at the next iteration
+	public void restartFromBest() {
+		current = new Solution(best);
+		cost = bestCost;
+		stagnationIter = 0;
+		localStagnationIter = maxLocalStagnationIter;
+	}
+	
+	// Continue the search from the given solution if it is better than the best one
+	// found so far. Return whether it was taken. The solution is copied in full, so it
+	// may be the best solution of another thread.
+	public boolean offer(Solution solution) {
+		if(solution.getCost() >= bestCost)
+			return false;
+		
+		best = solution.deepCopy();
+		bestCost = solution.getCost();
+		stats.onBest(iter, bestCost);
+		current = new Solution(best);
+		cost = bestCost;
+		localBestCost = cost;
+		stagnationIter = 0;
+		localStagnationIter = 0;
+		
+		return true;
+	}
+	
+	// Set whether the routes changed by each move are improved with 2-opt and Or-opt moves
+	public void setPolishMoves(boolean polishMoves) {
+		this.polishMoves = polishMoves;
+	}
+	
+	// Restrict the moves to other vehicles to the insertions near the given cities, see
+	// NeighbourhoodEvaluator.setNearestCities, or to none if null. After escapeIter
+	// iterations without improvement of the local best solution, the full
+	// neighbourhood is scored until the next perturbation.
+	public void setGranular(NearestCities nearest, int escapeIter) {
+		this.nearest = nearest;
+		this.escapeIter = escapeIter;
+	}
+	
+	// Return the telemetry of the search, started when it was created
+	public SolverStats getStats() {
+		return stats;
+	}
+	
+	public Solution getBest() {
+		return best;
+	}
+	
+	public double getBestCost() {
+		return bestCost;
+	}
+	
+	public double getCost() {
+		return cost;
+	}
+	
+	// Return the number of iterations performed
+	public int getIter() {
+		return iter;
+	}
+	
+	// Return the number of iterations since the best solution was last improved
+	public int getStagnationIter() {
+		return stagnationIter;
+	}
+}
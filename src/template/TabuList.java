@@ -0,0 +1,140 @@
+package template;
+
+import java.util.Arrays;
+
+// Tabu list of move attributes. A move taking a task from a vehicle to a vehicle
+// (possibly the same) at a given pickup order is tabu until its expiry iteration. The
+// attributes are packed in a long and stored in an open addressing hash table with
+// linear probing, so a lookup allocates nothing and costs a few probes. Expired entries
+// are not removed but reused by later insertions, and purged when the table grows.
+public class TabuList {
+	private static final long EMPTY = -1; // Key of the free slots, no move packs to it
+	private static final double MAX_LOAD = 0.5; // Fraction of used slots before a rebuild
+	private static final int TASK_BITS = 24, VEHICLE_BITS = 12, ORDER_BITS = 16; // See key
+	
+	private final int tenure; // Number of iterations a move stays tabu
+	private long iter; // Current iteration
+	
+	private long[] keys;
+	private long[] expiry; // Iteration from which each entry is no longer tabu
+	private int used; // Number of slots not EMPTY, expired or not
+	private int mask;
+	
+	// Tabu list of the moves of an instance with the given number of tasks and vehicles,
+	// which must fit in the bits of the packed attributes, a pickup order being at most
+	// twice the number of tasks
+	public TabuList(int tenure, int numTasks, int numVehicles) {
+		if(numTasks >= 1 << TASK_BITS || 2*numTasks >= 1 << ORDER_BITS)
+			throw new IllegalArgumentException("The tabu list supports less than "
+					+ (1 << (ORDER_BITS - 1)) + " tasks, not " + numTasks);
+		if(numVehicles > 1 << VEHICLE_BITS)
+			throw new IllegalArgumentException("The tabu list supports at most "
+					+ (1 << VEHICLE_BITS) + " vehicles, not " + numVehicles);
+		
+		this.tenure = tenure;
+		this.iter = 0;
+		this.allocate(64);
+	}
+	
+	// Go to the next iteration
+	public void tick() {
+		iter++;
+	}
+	
+	// Make the move of the given attributes tabu for the next tenure iterations
+	public void add(int task, int fromVehicle, int toVehicle, int pickUpOrder) {
+		long key = key(task, fromVehicle, toVehicle, pickUpOrder);
+		int free = -1; // First expired slot met, reused if the key isn't in the table
+		
+		for(int k = hash(key) & mask; ; k = (k + 1) & mask) {
+			if(keys[k] == key) {
+				expiry[k] = iter + tenure;
+				return;
+			}
+			if(keys[k] == EMPTY) {
+				if(free < 0) {
+					free = k;
+					used++;
+				}
+				break;
+			}
+			if(free < 0 && expiry[k] <= iter)
+				free = k;
+		}
+		
+		keys[free] = key;
+		expiry[free] = iter + tenure;
+		
+		if(used > MAX_LOAD*keys.length)
+			this.rebuild();
+	}
+	
+	// Return whether the move of the given attributes is tabu
+	public boolean isTabu(int task, int fromVehicle, int toVehicle, int pickUpOrder) {
+		long key = key(task, fromVehicle, toVehicle, pickUpOrder);
+		
+		for(int k = hash(key) & mask; keys[k] != EMPTY; k = (k + 1) & mask) {
+			if(keys[k] == key)
+				return expiry[k] > iter;
+		}
+		
+		return false;
+	}
+	
+	public int getTenure() {
+		return tenure;
+	}
+	
+	// Put the entries still tabu in a new table, twice as big if they fill more than
+	// half of the maximum load
+	private void rebuild() {
+		long[] oldKeys = keys, oldExpiry = expiry;
+		
+		int alive = 0;
+		for(int k = 0; k < oldKeys.length; k++) {
+			if(oldKeys[k] != EMPTY && oldExpiry[k] > iter)
+				alive++;
+		}
+		
+		this.allocate(alive > MAX_LOAD*oldKeys.length/2 ? 2*oldKeys.length : oldKeys.length);
+		
+		for(int k = 0; k < oldKeys.length; k++) {
+			if(oldKeys[k] == EMPTY || oldExpiry[k] <= iter)
+				continue;
+			
+			int slot = hash(oldKeys[k]) & mask;
+			while(keys[slot] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = oldKeys[k];
+			expiry[slot] = oldExpiry[k];
+			used++;
+		}
+	}
+	
+	private void allocate(int capacity) {
+		this.keys = new long[capacity];
+		this.expiry = new long[capacity];
+		this.used = 0;
+		this.mask = capacity - 1;
+		Arrays.fill(keys, EMPTY);
+	}
+	
+	// Pack the attributes of a move: 24 bits for the task, 12 for each vehicle and 16
+	// for the pickup order, the sizes checked by the constructor
+	private static long key(int task, int fromVehicle, int toVehicle, int pickUpOrder) {
+		return ((long) task << (2*VEHICLE_BITS + ORDER_BITS)) | ((long) fromVehicle << (VEHICLE_BITS + ORDER_BITS))
+				| ((long) toVehicle << ORDER_BITS) | pickUpOrder;
+	}
+	
+	// Mix the bits of a key, as the finalizer of MurmurHash3
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		
+		return (int) key;
+	}
+}
@@ -0,0 +1,926 @@
+package template;
+
+import java.util.Arrays;
+import java.util.List;
+
+import logist.plan.Plan;
+
+// Class representing the list of pickup and delivery actions of one vehicle, i.e. the
+// tasks it has in charge and the order in which they are picked up and delivered. The
+// actions are stored as action codes (see Instance) in a primitive array.
+//
+// Besides the moves of single tasks, the list can reverse a segment of actions (2-opt)
+// or move a short one elsewhere (Or-opt), as long as every pickup stays before its
+// delivery and the capacity holds. The differences of distance of these moves are
+// computed in O(1) from the prefix distances, and their feasibility from the prefix
+// loads.
+//
+// With several capacity dimensions (see Instance) each one has its own prefix loads.
+// With time windows the list also keeps its schedule and the forward time slack of
+// each action, the largest delay of its service which keeps every window from it to
+// the end of the list, so that the feasibility of an insertion is checked in O(1) too.
+//
+// The list keeps a Zobrist-like 64-bit hash: the XOR of a pseudo-random key per edge
+// between two consecutive actions, the first one starting from the vehicle. As an
+// insertion or removal changes at most five edges, the hash is updated in O(1), and an
+// insertion followed by the removal of the same task gives back the same hash.
+class TaskList {
+	private static final int MAX_SEGMENT = 3; // Longest segment moved by improve
+	private static final double IMPROVEMENT_EPSILON = 1e-9; // Smallest improvement taken,
+	                                                        // against rounding cycles
+	
+	private final Instance instance;
+	public final int vehicle; // Index of the vehicle
+	private final int startCity; // City from which the vehicle starts
+	private int[] actions; // Pickup and delivery actions, only the first size ones are used
+	private int size;
+	public double distance; // Cached distance of the whole list
+	private long hash; // Hash of the edges of the list
+	
+	private int[][] loads; // Load of the vehicle right after each action, in each dimension
+	private int validLoads; // Number of entries of loads which are up to date
+	private int[][][] maxLoads; // Sparse table of each dimension, maxLoads[d][l][k] is the
+	                            // max of loads[d][k..k+2^l-1]
+	private boolean validMaxLoads;
+	
+	// Schedule, only with time windows: start of the service of each action, waiting
+	// time of the vehicle up to each action included, and forward time slack of each
+	// action. The slack of k is the min over m >= k of margins[m] - waits[k], where
+	// margins[m] = latest[m] - startTimes[m] + waits[m], since a delay shrinks by the
+	// waiting times it meets.
+	private double[] startTimes, waits, slacks;
+	private double[][] minMargins; // Sparse table, minMargins[l][k] is the min of
+	                               // margins[k..k+2^l-1]
+	private boolean validTimes;
+	
+	// Prefix distances, forward[k] from the start to the k-th action along the list and
+	// backward[k] the same with every edge walked the other way, for the reversals
+	private double[] forward, backward;
+	private int validPrefix; // Number of entries of forward and backward up to date
+	private int[] partner; // Position of the other action of the task of each action
+	private boolean validPartners;
+	
+	// Create an empty list
+	public TaskList(Instance instance, int vehicle) {
+		this.instance = instance;
+		this.vehicle = vehicle;
+		this.startCity = instance.vehicleStart[vehicle];
+		this.actions = new int[8];
+		this.size = 0;
+		this.distance = 0;
+		this.hash = 0;
+		this.loads = new int[instance.numDimensions][8];
+		this.validLoads = 0;
+		this.validMaxLoads = false;
+		this.validTimes = false;
+	}
+	
+	// Create a deep copy
+	public TaskList(TaskList taskList) {
+		this.instance = taskList.instance;
+		this.vehicle = taskList.vehicle;
+		this.startCity = taskList.startCity;
+		this.actions = Arrays.copyOf(taskList.actions, Math.max(8, taskList.size + 2));
+		this.size = taskList.size;
+		this.distance = taskList.distance;
+		this.hash = taskList.hash;
+		this.loads = new int[instance.numDimensions][actions.length];
+		this.validLoads = 0;
+		this.validMaxLoads = false;
+		this.validTimes = false;
+	}
+	
+	// Create a list where the tasks are delivered right after being picked up, with the
+	// same order as they are in the given list
+	public TaskList(Instance instance, int vehicle, List<Integer> tasks) {
+		this(instance, vehicle);
+		
+		for(int t : tasks) {
+			this.insertTask(t, size, size + 1);
+		}
+	}
+	
+	// Create a list with the first count given actions, in this order. Every pickup must
+	// be before its delivery.
+	public TaskList(Instance instance, int vehicle, int[] actions, int count) {
+		this(instance, vehicle);
+		
+		this.actions = Arrays.copyOf(actions, Math.max(8, count + 2));
+		this.size = count;
+		this.loads = new int[instance.numDimensions][this.actions.length];
+		this.distance = this.getDistance();
+		this.hash = this.computeHash();
+	}
+	
+	// Return the number of actions
+	public int size() {
+		return size;
+	}
+	
+	// Return the number of tasks
+	public int numTasks() {
+		return size/2;
+	}
+	
+	// Return the code of the k-th action
+	public int action(int k) {
+		return actions[k];
+	}
+	
+	// Return the position of the given action, -1 if it is not in the list
+	public int indexOf(int action) {
+		for(int k = 0; k < size; k++) {
+			if(actions[k] == action)
+				return k;
+		}
+		
+		return -1;
+	}
+	
+	// Return the city where the k-th action takes place, or the start city if k is -1
+	public int cityAt(int k) {
+		return k < 0 ? startCity : instance.actionCity[actions[k]];
+	}
+	
+	private double dist(int from, int to) {
+		return instance.distances.get(from, to);
+	}
+	
+	// Return the difference of distance if the given task was inserted with the
+	// given pickup and delivery order. Only the edges around the two insertion
+	// points are looked at.
+	public double insertionDelta(int task, int pickUpOrder, int deliverOrder) {
+		int pickUp = instance.actionCity[Instance.pickUp(task)];
+		int delivery = instance.actionCity[Instance.delivery(task)];
+		int prev = cityAt(pickUpOrder - 1);
+		double delta;
+		
+		// Pickup and delivery are consecutive, they replace a single edge
+		if(deliverOrder == pickUpOrder + 1) {
+			delta = dist(prev, pickUp) + dist(pickUp, delivery);
+			if(pickUpOrder < size) {
+				int next = cityAt(pickUpOrder);
+				delta += dist(delivery, next) - dist(prev, next);
+			}
+			
+			return delta;
+		}
+		
+		// Otherwise each one of them replaces its own edge
+		int next = cityAt(pickUpOrder);
+		delta = dist(prev, pickUp) + dist(pickUp, next) - dist(prev, next);
+		
+		prev = cityAt(deliverOrder - 2);
+		delta += dist(prev, delivery);
+		if(deliverOrder - 1 < size) {
+			next = cityAt(deliverOrder - 1);
+			delta += dist(delivery, next) - dist(prev, next);
+		}
+		
+		return delta;
+	}
+	
+	// Return the difference of distance if the given task, picked up and delivered at
+	// the given orders, was removed from the list. Only the edges around the removed
+	// actions are looked at.
+	public double removalDelta(int pickUpOrder, int deliverOrder) {
+		int p = pickUpOrder, d = deliverOrder;
+		int pickUp = cityAt(p), delivery = cityAt(d);
+		int prev = cityAt(p - 1);
+		double delta;
+		
+		// Pickup and delivery are consecutive, a single edge replaces them
+		if(d == p + 1) {
+			delta = -dist(prev, pickUp) - dist(pickUp, delivery);
+			if(d + 1 < size) {
+				int next = cityAt(d + 1);
+				delta += dist(prev, next) - dist(delivery, next);
+			}
+			
+			return delta;
+		}
+		
+		// Otherwise each one of them is replaced by its own edge
+		int next = cityAt(p + 1);
+		delta = dist(prev, next) - dist(prev, pickUp) - dist(pickUp, next);
+		
+		prev = cityAt(d - 1);
+		delta -= dist(prev, delivery);
+		if(d + 1 < size) {
+			next = cityAt(d + 1);
+			delta += dist(prev, next) - dist(delivery, next);
+		}
+		
+		return delta;
+	}
+	
+	// Bring the prefix loads up to date, starting from the first modified action
+	private void updateLoads() {
+		if(validLoads >= size)
+			return;
+		
+		for(int d = 0; d < loads.length; d++) {
+			if(loads[d].length < actions.length)
+				loads[d] = Arrays.copyOf(loads[d], actions.length);
+			
+			int[] load = loads[d], actionLoad = instance.actionLoads[d];
+			int weight = validLoads == 0 ? 0 : load[validLoads - 1];
+			for(int k = validLoads; k < size; k++) {
+				weight += actionLoad[actions[k]];
+				load[k] = weight;
+			}
+		}
+		
+		validLoads = size;
+	}
+	
+	// Rebuild the sparse tables giving the max load over any range of actions
+	private void updateMaxLoads() {
+		if(validMaxLoads)
+			return;
+		
+		this.updateLoads();
+		
+		int levels = 1;
+		while((1 << levels) <= size)
+			levels++;
+		
+		if(maxLoads == null || maxLoads[0].length < levels || maxLoads[0][0].length < size)
+			maxLoads = new int[loads.length][levels][Math.max(size, actions.length)];
+		
+		for(int d = 0; d < loads.length; d++) {
+			int[][] table = maxLoads[d];
+			
+			System.arraycopy(loads[d], 0, table[0], 0, size);
+			for(int l = 1; l < levels; l++) {
+				int half = 1 << (l - 1);
+				for(int k = 0; k + 2*half <= size; k++) {
+					table[l][k] = Math.max(table[l - 1][k], table[l - 1][k + half]);
+				}
+			}
+		}
+		
+		validMaxLoads = true;
+	}
+	
+	// Bring the schedule, the slacks and their sparse table up to date, walking the
+	// whole list. Only called with time windows.
+	private void updateTimes() {
+		if(validTimes)
+			return;
+		
+		if(startTimes == null || startTimes.length < actions.length) {
+			startTimes = new double[actions.length];
+			waits = new double[actions.length];
+			slacks = new double[actions.length];
+		}
+		
+		double time = 0, wait = 0;
+		for(int k = 0; k < size; k++) {
+			double arrival = time + dist(cityAt(k - 1), cityAt(k));
+			startTimes[k] = Math.max(arrival, instance.actionEarliest[actions[k]]);
+			wait += startTimes[k] - arrival;
+			waits[k] = wait;
+			time = startTimes[k] + instance.actionService[actions[k]];
+		}
+		
+		int levels = 1;
+		while((1 << levels) <= size)
+			levels++;
+		if(minMargins == null || minMargins.length < levels || minMargins[0].length < size)
+			minMargins = new double[levels][Math.max(size, actions.length)];
+		
+		double min = Double.POSITIVE_INFINITY;
+		for(int k = size - 1; k >= 0; k--) {
+			minMargins[0][k] = instance.actionLatest[actions[k]] - startTimes[k] + waits[k];
+			min = Math.min(min, minMargins[0][k]);
+			slacks[k] = min - waits[k];
+		}
+		for(int l = 1; l < levels; l++) {
+			int half = 1 << (l - 1);
+			for(int k = 0; k + 2*half <= size; k++) {
+				minMargins[l][k] = Math.min(minMargins[l - 1][k], minMargins[l - 1][k + half]);
+			}
+		}
+		
+		validTimes = true;
+	}
+	
+	// Bring all the lazily updated data up to date, so that the list can then be read
+	// by several threads at once
+	public void prepareReads() {
+		this.updateLoads();
+		this.updateMaxLoads();
+		if(instance.hasTimeWindows)
+			this.updateTimes();
+	}
+	
+	// Return the load of the vehicle in the d-th dimension right before the k-th action
+	public int loadBefore(int d, int k) {
+		this.updateLoads();
+		
+		return k == 0 ? 0 : loads[d][k - 1];
+	}
+	
+	// Return the max load of the vehicle in the d-th dimension over the actions from to
+	// to, both included
+	public int maxLoad(int d, int from, int to) {
+		this.updateMaxLoads();
+		
+		int l = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+		return Math.max(maxLoads[d][l][from], maxLoads[d][l][to - (1 << l) + 1]);
+	}
+	
+	// Return the time the service of the k-th action ends, 0 for the start (k = -1)
+	private double endTime(int k) {
+		return k < 0 ? 0 : startTimes[k] + instance.actionService[actions[k]];
+	}
+	
+	// Return the start of the service of the given action if the vehicle left the given
+	// city for it at the given time
+	private double serviceStart(int action, int fromCity, double time) {
+		return Math.max(time + dist(fromCity, instance.actionCity[action]), instance.actionEarliest[action]);
+	}
+	
+	// Return the delay of the service of the k-th action if the given action, starting at
+	// the given time, was put right before it
+	private double push(int action, double start, int k) {
+		double arrival = start + instance.actionService[action] + dist(instance.actionCity[action], cityAt(k));
+		return Math.max(0, Math.max(arrival, instance.actionEarliest[actions[k]]) - startTimes[k]);
+	}
+	
+	// Check in O(1) if inserting the given task with the given pickup and delivery
+	// order keeps the actions feasible with the capacity of the vehicle in every
+	// dimension, and with the time windows. The task is carried right after its pickup
+	// and during the actions between the two orders.
+	public boolean canInsert(int task, int pickUpOrder, int deliverOrder) {
+		for(int d = 0; d < loads.length; d++) {
+			int capacity = instance.vehicleCapacities[d][vehicle] - instance.actionLoads[d][Instance.pickUp(task)];
+			
+			if(this.loadBefore(d, pickUpOrder) > capacity)
+				return false;
+			if(deliverOrder - 2 >= pickUpOrder && this.maxLoad(d, pickUpOrder, deliverOrder - 2) > capacity)
+				return false;
+		}
+		
+		if(!instance.hasTimeWindows)
+			return true;
+		
+		// The delay of the actions carried with the task must fit in their windows
+		this.updateTimes();
+		int pickUp = Instance.pickUp(task);
+		double start = this.serviceStart(pickUp, cityAt(pickUpOrder - 1), this.endTime(pickUpOrder - 1));
+		if(start > instance.actionLatest[pickUp])
+			return false;
+		
+		if(deliverOrder - 2 >= pickUpOrder) {
+			int from = pickUpOrder, to = deliverOrder - 2;
+			int l = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+			double margin = Math.min(minMargins[l][from], minMargins[l][to - (1 << l) + 1]);
+			
+			if(this.push(pickUp, start, pickUpOrder) > margin - waits[pickUpOrder])
+				return false;
+		}
+		
+		return this.canDeliverAt(task, pickUpOrder, deliverOrder);
+	}
+	
+	// Return the highest delivery order at which the given task can be delivered when
+	// picked up at the given order, or -1 if it cannot be picked up there. Since the
+	// load only grows with the delivery order, every order between pickUpOrder + 1 and
+	// the returned one is feasible with the capacity, and the higher ones don't need to
+	// be looked at. The same holds for the windows of the actions carried with the
+	// task, but not for the window of the delivery, see canDeliverAt. The first action
+	// the task can't be carried over is found in O(log n) by a descent of the sparse
+	// tables.
+	public int lastDeliverOrder(int task, int pickUpOrder) {
+		int end = size; // First action the task can't be carried over
+		
+		this.updateMaxLoads();
+		for(int d = 0; d < loads.length; d++) {
+			int capacity = instance.vehicleCapacities[d][vehicle] - instance.actionLoads[d][Instance.pickUp(task)];
+			
+			if(this.loadBefore(d, pickUpOrder) > capacity)
+				return -1;
+			
+			// Skip the largest blocks of actions whose max load fits
+			int[][] table = maxLoads[d];
+			int k = pickUpOrder;
+			for(int l = levels(end - k) - 1; l >= 0; l--) {
+				if(k + (1 << l) <= end && table[l][k] <= capacity)
+					k += 1 << l;
+			}
+			end = k;
+		}
+		
+		if(instance.hasTimeWindows) {
+			this.updateTimes();
+			int pickUp = Instance.pickUp(task);
+			double start = this.serviceStart(pickUp, cityAt(pickUpOrder - 1), this.endTime(pickUpOrder - 1));
+			if(start > instance.actionLatest[pickUp])
+				return -1;
+			
+			// The delay of the pickup shrinks by the waiting times it meets, so it fits
+			// in the window of the k-th action if it is at most margins[k]
+			if(pickUpOrder < end) {
+				double push = this.push(pickUp, start, pickUpOrder) + waits[pickUpOrder];
+				int k = pickUpOrder;
+				for(int l = levels(end - k) - 1; l >= 0; l--) {
+					if(k + (1 << l) <= end && push <= minMargins[l][k])
+						k += 1 << l;
+				}
+				end = k;
+			}
+		}
+		
+		return end + 1;
+	}
+	
+	// Return the number of levels of a sparse table over n actions, the largest block
+	// being the largest power of 2 at most n
+	private static int levels(int n) {
+		return 32 - Integer.numberOfLeadingZeros(n);
+	}
+	
+	// Check in O(1) the time window of the delivery of the given task and the ones of
+	// the actions after it, if the task was picked up and delivered at the given orders.
+	// The orders must be allowed by lastDeliverOrder. Always true without time windows.
+	public boolean canDeliverAt(int task, int pickUpOrder, int deliverOrder) {
+		if(!instance.hasTimeWindows)
+			return true;
+		
+		this.updateTimes();
+		int pickUp = Instance.pickUp(task), delivery = Instance.delivery(task);
+		double start = this.serviceStart(pickUp, cityAt(pickUpOrder - 1), this.endTime(pickUpOrder - 1));
+		if(start > instance.actionLatest[pickUp])
+			return false;
+		
+		// Start of the delivery, after the pickup or after the delayed action before it
+		if(deliverOrder == pickUpOrder + 1) {
+			start = this.serviceStart(delivery, instance.actionCity[pickUp],
+					start + instance.actionService[pickUp]);
+		}
+		else {
+			int prev = deliverOrder - 2;
+			double push = Math.max(0, this.push(pickUp, start, pickUpOrder) - (waits[prev] - waits[pickUpOrder]));
+			start = this.serviceStart(delivery, cityAt(prev), this.endTime(prev) + push);
+		}
+		if(start > instance.actionLatest[delivery])
+			return false;
+		
+		return deliverOrder - 1 >= size || this.push(delivery, start, deliverOrder - 1) <= slacks[deliverOrder - 1];
+	}
+	
+	// Check if the actions are feasible with the capacity of the vehicle in every
+	// dimension, rescanning the whole list
+	public boolean checkWeights() {
+		for(int d = 0; d < instance.numDimensions; d++) {
+			int capacity = instance.vehicleCapacities[d][vehicle];
+			int weight = 0;
+			
+			for(int k = 0; k < size; k++) {
+				weight += instance.actionLoads[d][actions[k]];
+				if(weight > capacity)
+					return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	// Check if the actions are feasible with the time windows, rescanning the whole list
+	public boolean checkTimes() {
+		double time = 0;
+		
+		for(int k = 0; k < size; k++) {
+			double start = this.serviceStart(actions[k], cityAt(k - 1), time);
+			if(start > instance.actionLatest[actions[k]])
+				return false;
+			time = start + instance.actionService[actions[k]];
+		}
+		
+		return true;
+	}
+	
+	// Insert the given task with the given pickup and delivery order
+	public void insertTask(int task, int pickUpOrder, int deliverOrder) {
+		this.distance += this.insertionDelta(task, pickUpOrder, deliverOrder);
+		
+		if(size + 2 > actions.length)
+			actions = Arrays.copyOf(actions, 2*actions.length);
+		
+		// Shift the actions after the delivery by two, and the ones between the pickup
+		// and the delivery by one
+		System.arraycopy(actions, deliverOrder - 1, actions, deliverOrder + 1, size - deliverOrder + 1);
+		System.arraycopy(actions, pickUpOrder, actions, pickUpOrder + 1, deliverOrder - 1 - pickUpOrder);
+		actions[pickUpOrder] = Instance.pickUp(task);
+		actions[deliverOrder] = Instance.delivery(task);
+		size += 2;
+		hash ^= this.hashDelta(pickUpOrder, deliverOrder);
+		
+		validLoads = Math.min(validLoads, pickUpOrder);
+		validMaxLoads = false;
+		validPrefix = Math.min(validPrefix, pickUpOrder);
+		validPartners = false;
+		validTimes = false;
+	}
+	
+	// Remove the given task from the list.
+	public void removeTask(int task) {
+		int p = this.indexOf(Instance.pickUp(task));
+		int d = this.indexOf(Instance.delivery(task));
+		
+		this.distance += this.removalDelta(p, d);
+		hash ^= this.hashDelta(p, d);
+		
+		// Shift the actions between the pickup and the delivery by one, and the ones
+		// after the delivery by two
+		System.arraycopy(actions, p + 1, actions, p, d - p - 1);
+		System.arraycopy(actions, d + 1, actions, d - 1, size - d - 1);
+		size -= 2;
+		
+		validLoads = Math.min(validLoads, p);
+		validMaxLoads = false;
+		validPrefix = Math.min(validPrefix, p);
+		validPartners = false;
+		validTimes = false;
+	}
+	
+	// Return the hash of the edges of the list
+	public long getHash() {
+		return hash;
+	}
+	
+	// Recompute the hash from scratch by walking the whole list. Only meant to check the
+	// incremental hash.
+	public long computeHash() {
+		long h = 0;
+		
+		for(int k = 0; k < size; k++) {
+			h ^= this.edgeHash(k - 1, k);
+		}
+		
+		return h;
+	}
+	
+	// Return the XOR of the keys of the edges which exist with the actions at p and d
+	// (p < d) in the list and of the ones which replace them without these actions
+	private long hashDelta(int p, int d) {
+		long h = this.edgeHash(p - 1, p) ^ this.edgeHash(d - 1, d) ^ this.edgeHash(d, d + 1);
+		
+		if(d > p + 1)
+			h ^= this.edgeHash(p, p + 1) ^ this.edgeHash(p - 1, p + 1) ^ this.edgeHash(d - 1, d + 1);
+		else
+			h ^= this.edgeHash(p - 1, d + 1);
+		
+		return h;
+	}
+	
+	// Return the key of the edge from the a-th action, or the start of the vehicle if a
+	// is -1, to the b-th action, or 0 if b is past the end of the list
+	private long edgeHash(int a, int b) {
+		if(b >= size)
+			return 0;
+		
+		return edgeKey(vehicle, a < 0 ? -1 : actions[a], actions[b]);
+	}
+	
+	// Return the pseudo-random key of an edge between two actions of a vehicle, the first
+	// one being -1 for the start of the vehicle. The key is the SplitMix64 finalizer of
+	// the packed edge, so no table of keys is needed.
+	static long edgeKey(int vehicle, int from, int to) {
+		long z = ((long) vehicle << 42) ^ ((long) (from + 1) << 21) ^ to;
+		
+		z += 0x9e3779b97f4a7c15L;
+		z = (z ^ (z >>> 30))*0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27))*0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	// Return the distance to pick up and deliver all tasks, walking the whole list
+	public double getDistance() {
+		double dist = 0;
+		
+		int lastCity = startCity;
+		for(int k = 0; k < size; k++) {
+			dist += dist(lastCity, cityAt(k));
+			lastCity = cityAt(k);
+		}
+		
+		return dist;
+	}
+	
+	// Bring the prefix distances up to date, starting from the first modified action
+	private void updatePrefix() {
+		if(validPrefix >= size)
+			return;
+		
+		if(forward == null || forward.length < actions.length) {
+			forward = new double[actions.length];
+			backward = new double[actions.length];
+			validPrefix = 0;
+		}
+		
+		for(int k = validPrefix; k < size; k++) {
+			int from = cityAt(k - 1), to = cityAt(k);
+			forward[k] = (k == 0 ? 0 : forward[k - 1]) + (k == 0 ? 0 : dist(from, to));
+			backward[k] = (k == 0 ? 0 : backward[k - 1]) + (k == 0 ? 0 : dist(to, from));
+		}
+		
+		validPrefix = size;
+	}
+	
+	// Return the difference of distance if the actions from a to b (a < b) were
+	// reversed (2-opt). The edges inside the segment are walked the other way, their
+	// distance comes from the prefix distances, so this is O(1) even if the distances
+	// are not symmetric.
+	public double reversalDelta(int a, int b) {
+		this.updatePrefix();
+		
+		int prev = cityAt(a - 1);
+		double delta = dist(prev, cityAt(b)) - dist(prev, cityAt(a))
+				+ (backward[b] - backward[a]) - (forward[b] - forward[a]);
+		if(b + 1 < size)
+			delta += dist(cityAt(a), cityAt(b + 1)) - dist(cityAt(b), cityAt(b + 1));
+		
+		return delta;
+	}
+	
+	// Check if the actions from a to b (a < b) can be reversed: no task may have both its
+	// actions in the segment, and the load in the reversed segment, which is the load
+	// before it plus the weights of the end of the segment, must fit in the vehicle in
+	// every dimension. The time windows are not checked, see checkTimes.
+	public boolean canReverse(int a, int b) {
+		this.updatePartners();
+		this.updateLoads();
+		
+		for(int k = a; k <= b; k++) {
+			if(partner[k] >= a && partner[k] <= b)
+				return false;
+		}
+		
+		for(int d = 0; d < loads.length; d++) {
+			int before = this.loadBefore(d, a);
+			int minLoad = before;
+			for(int k = a; k < b; k++) {
+				minLoad = Math.min(minLoad, loads[d][k]);
+			}
+			
+			if(before + loads[d][b] - minLoad > instance.vehicleCapacities[d][vehicle])
+				return false;
+		}
+		
+		return true;
+	}
+	
+	// Reverse the actions from a to b, which must be allowed by canReverse
+	public void reverse(int a, int b) {
+		this.distance += this.reversalDelta(a, b);
+		
+		for(int i = a, j = b; i < j; i++, j--) {
+			int action = actions[i];
+			actions[i] = actions[j];
+			actions[j] = action;
+		}
+		
+		this.invalidate(a);
+	}
+	
+	// Return the difference of distance if the len actions from a were moved to start at
+	// position t of the list without them (Or-opt). Only the edges around the two ends
+	// of the segment and the insertion point change.
+	public double segmentMoveDelta(int a, int len, int t) {
+		int end = a + len - 1;
+		
+		// Remove the segment
+		int prev = cityAt(a - 1);
+		double delta = -dist(prev, cityAt(a));
+		if(end + 1 < size)
+			delta += dist(prev, cityAt(end + 1)) - dist(cityAt(end), cityAt(end + 1));
+		
+		// Insert it between the actions t - 1 and t of the list without it
+		int before = t == 0 ? startCity : cityAt(t - 1 < a ? t - 1 : t - 1 + len);
+		delta += dist(before, cityAt(a));
+		if(t < size - len) {
+			int after = cityAt(t < a ? t : t + len);
+			delta += dist(cityAt(end), after) - dist(before, after);
+		}
+		
+		return delta;
+	}
+	
+	// Check if the len actions from a can be moved to start at position t of the list
+	// without them. Moving the segment earlier, the deliveries it holds must still come
+	// after their pickups, and the actions it jumps over carry its weight. Moving it
+	// later, the pickups it holds must still come before their deliveries, and the
+	// actions it jumps over no longer carry its weight. This holds in every dimension.
+	// The time windows are not checked, see checkTimes.
+	public boolean canMoveSegment(int a, int len, int t) {
+		this.updatePartners();
+		this.updateLoads();
+		
+		int end = a + len - 1;
+		int last = t + len - 1; // Last action jumped over when moving later
+		for(int k = a; k <= end; k++) {
+			if(t < a ? partner[k] < a && partner[k] >= t : partner[k] > end && partner[k] <= last)
+				return false;
+		}
+		
+		for(int d = 0; d < loads.length; d++) {
+			int capacity = instance.vehicleCapacities[d][vehicle];
+			int weight = loads[d][end] - this.loadBefore(d, a); // Weight added by the segment
+			int load; // Load right before the segment once moved
+			
+			if(t < a) {
+				if(this.maxLoad(d, t, a - 1) + weight > capacity)
+					return false;
+				load = this.loadBefore(d, t);
+			}
+			else {
+				if(this.maxLoad(d, end + 1, last) - weight > capacity)
+					return false;
+				load = loads[d][last] - weight;
+			}
+			
+			for(int k = a; k <= end; k++) {
+				load += instance.actionLoads[d][actions[k]];
+				if(load > capacity)
+					return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	// Move the len actions from a to start at position t of the list without them, which
+	// must be allowed by canMoveSegment
+	public void moveSegment(int a, int len, int t) {
+		this.distance += this.segmentMoveDelta(a, len, t);
+		
+		int[] segment = Arrays.copyOfRange(actions, a, a + len);
+		if(t < a)
+			System.arraycopy(actions, t, actions, t + len, a - t);
+		else
+			System.arraycopy(actions, a + len, actions, a, t - a);
+		System.arraycopy(segment, 0, actions, t, len);
+		
+		this.invalidate(Math.min(a, t));
+	}
+	
+	// Improve the order of the actions with 2-opt and Or-opt moves (segments of up to
+	// MAX_SEGMENT actions) until none of them improves the distance, taking the first
+	// improving move found each time. With time windows, a move breaking them is undone.
+	// Return the difference of distance.
+	public double improve() {
+		double oldDistance = distance;
+		
+		boolean improved = true;
+		while(improved) {
+			improved = this.improveReversals() || this.improveSegmentMoves();
+		}
+		
+		return distance - oldDistance;
+	}
+	
+	// Apply the first improving reversal found, if any
+	private boolean improveReversals() {
+		int[] before = new int[loads.length];
+		int[] minLoad = new int[loads.length]; // Min of the loads before the actions a to b
+		
+		for(int a = 0; a < size - 1; a++) {
+			this.updatePartners();
+			this.updateLoads();
+			for(int d = 0; d < loads.length; d++) {
+				before[d] = this.loadBefore(d, a);
+				minLoad[d] = before[d];
+			}
+			int firstDelivery = Integer.MAX_VALUE; // First delivery of a pickup in a..b
+			
+			for(int b = a + 1; b < size; b++) {
+				boolean fits = true;
+				for(int d = 0; d < loads.length; d++) {
+					minLoad[d] = Math.min(minLoad[d], loads[d][b - 1]);
+					fits &= before[d] + loads[d][b] - minLoad[d] <= instance.vehicleCapacities[d][vehicle];
+				}
+				if(Instance.isPickUp(actions[b - 1]))
+					firstDelivery = Math.min(firstDelivery, partner[b - 1]);
+				
+				// The segment holds a whole task, so do all the longer ones
+				if(firstDelivery <= b)
+					break;
+				if(!fits || this.reversalDelta(a, b) >= -IMPROVEMENT_EPSILON)
+					continue;
+				
+				double distance = this.distance;
+				this.reverse(a, b);
+				if(!instance.hasTimeWindows || this.checkTimes())
+					return true;
+				
+				this.reverse(a, b);
+				this.distance = distance;
+				this.updatePartners();
+				this.updateLoads();
+			}
+		}
+		
+		return false;
+	}
+	
+	// Apply the first improving segment move found, if any
+	private boolean improveSegmentMoves() {
+		for(int len = 1; len <= MAX_SEGMENT; len++) {
+			for(int a = 0; a + len <= size; a++) {
+				for(int t = 0; t <= size - len; t++) {
+					if(t == a)
+						continue;
+					
+					if(this.segmentMoveDelta(a, len, t) >= -IMPROVEMENT_EPSILON || !this.canMoveSegment(a, len, t))
+						continue;
+					
+					double distance = this.distance;
+					this.moveSegment(a, len, t);
+					if(!instance.hasTimeWindows || this.checkTimes())
+						return true;
+					
+					this.moveSegment(t, len, a);
+					this.distance = distance;
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	// Compute the position of the other action of the task of each action
+	private void updatePartners() {
+		if(partner != null && validPartners)
+			return;
+		
+		if(partner == null || partner.length < actions.length)
+			partner = new int[actions.length];
+		
+		// The pickup of a task always comes first, so its position is kept in partner
+		// until the delivery is found
+		for(int k = 0; k < size; k++) {
+			if(Instance.isPickUp(actions[k])) {
+				partner[k] = -1;
+			}
+			else {
+				for(int p = k - 1; p >= 0; p--) {
+					if(actions[p] == actions[k] - 1) {
+						partner[p] = k;
+						partner[k] = p;
+						break;
+					}
+				}
+			}
+		}
+		
+		validPartners = true;
+	}
+	
+	// Invalidate the data depending on the order of the actions, from the k-th action,
+	// after a reordering which doesn't change the tasks of the list
+	private void invalidate(int k) {
+		validLoads = Math.min(validLoads, k);
+		validMaxLoads = false;
+		validPrefix = Math.min(validPrefix, k);
+		validPartners = false;
+		validTimes = false;
+		hash = this.computeHash();
+	}
+	
+	// Return the corresponding plan.
+	public Plan getPlan() {
+		Plan plan = new Plan(instance.distances.city(startCity));
+		
+		int lastCity = startCity;
+		for(int k = 0; k < size; k++) {
+			int city = cityAt(k);
+			instance.distances.appendPath(plan, lastCity, city);
+			
+			if(Instance.isPickUp(actions[k])) {
+				plan.appendPickup(instance.tasks[Instance.taskOf(actions[k])]);
+			}
+			else {
+				plan.appendDelivery(instance.tasks[Instance.taskOf(actions[k])]);
+			}
+			
+			lastCity = city;
+		}
+		
+		return plan;
+	}
+	
+	// Return a string describing the list
+	public String toString() {
+		String msg = "";
+		
+		for(int k = 0; k < size; k++) {
+			msg += Instance.isPickUp(actions[k]) ? "Pickup " : "Deliver ";
+			msg += Instance.taskOf(actions[k]) + ", ";
+		}
+		
+		return msg;
+	}
+}
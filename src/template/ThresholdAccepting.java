@@ -0,0 +1,19 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Threshold accepting: a neighbour is accepted if it is worse than the current solution
+// by less than a threshold, which decreases linearly with the elapsed time from
+// initialThreshold to 0 at the deadline. The threshold is relative to the current cost.
+public class ThresholdAccepting implements AcceptanceCriterion {
+	private final double initialThreshold;
+	
+	public ThresholdAccepting(double initialThreshold) {
+		this.initialThreshold = initialThreshold;
+	}
+	
+	@Override
+	public boolean accept(double cost, double candidateCost, double progress, SplittableRandom random) {
+		return candidateCost - cost <= cost*initialThreshold*(1 - progress);
+	}
+}
@@ -0,0 +1,129 @@
+package template;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import logist.task.Task;
+
+// Initial solution built from the best solution of the previous plan, for re-planning
+// when the tasks only changed a little. The tasks still there keep their vehicle and
+// their order, the tasks gone are dropped, which never breaks the capacity, and the new
+// tasks are inserted at their cheapest place, see InsertionHeuristic. Tasks and vehicles
+// are matched by their logist id, so the time taken depends on the size of the change
+// more than on the size of the instance. Without a previous solution, or if the
+// vehicles changed, the solution is built from scratch by another heuristic.
+public class WarmStart implements ConstructionHeuristic {
+	private final ConstructionHeuristic fallback; // Heuristic used without a previous solution
+	private final InsertionHeuristic heuristic;
+	
+	private Solution previous; // Best solution of the previous plan, or null
+	private int changedTasks; // Tasks removed or added by the last build, -1 if it started
+	                          // from scratch
+	
+	public WarmStart(ConstructionHeuristic fallback) {
+		this.fallback = fallback;
+		this.heuristic = new InsertionHeuristic(1);
+		this.changedTasks = -1;
+	}
+	
+	// Set the solution the next builds start from, or null to start from scratch
+	public void setPrevious(Solution previous) {
+		this.previous = previous;
+	}
+	
+	@Override
+	public Solution build(Instance instance, SplittableRandom random) {
+		changedTasks = -1;
+		if(previous == null || previous.getInstance().tasks == null || instance.tasks == null)
+			return fallback.build(instance, random);
+		
+		Instance old = previous.getInstance();
+		
+		// Index of each vehicle of the previous instance in the new one, which must have
+		// the same vehicles
+		if(old.numVehicles != instance.numVehicles)
+			return fallback.build(instance, random);
+		Map<Integer, Integer> vehicleIndex = new HashMap<Integer, Integer>();
+		for(int v = 0; v < instance.numVehicles; v++) {
+			vehicleIndex.put(instance.vehicles[v].id(), v);
+		}
+		
+		// Index of each task of the new instance
+		Map<Integer, Integer> taskIndex = new HashMap<Integer, Integer>();
+		for(int t = 0; t < instance.numTasks; t++) {
+			taskIndex.put(instance.tasks[t].id, t);
+		}
+		
+		Solution solution = new Solution(instance);
+		boolean[] placed = new boolean[instance.numTasks];
+		int kept = 0, removed = 0;
+		int[] actions = new int[8];
+		
+		for(int ov = 0; ov < old.numVehicles; ov++) {
+			Integer v = vehicleIndex.get(old.vehicles[ov].id());
+			if(v == null)
+				return fallback.build(instance, random);
+			TaskList route = previous.getTaskList(ov);
+			
+			// With a smaller capacity the order may not hold anymore, the tasks of the
+			// vehicle are then inserted again
+			if(instance.vehicleCapacity[v] < old.vehicleCapacity[ov])
+				continue;
+			
+			if(actions.length < route.size())
+				actions = new int[route.size()];
+			int count = 0;
+			
+			for(int k = 0; k < route.size(); k++) {
+				int action = route.action(k);
+				Integer t = taskIndex.get(old.tasks[Instance.taskOf(action)].id);
+				
+				if(t == null || !sameTask(old.tasks[Instance.taskOf(action)], instance.tasks[t])) {
+					if(Instance.isPickUp(action))
+						removed++;
+					continue;
+				}
+				
+				actions[count++] = Instance.isPickUp(action) ? Instance.pickUp(t) : Instance.delivery(t);
+				if(Instance.isPickUp(action)) {
+					placed[t] = true;
+					kept++;
+				}
+			}
+			
+			solution.putRoute(v, actions, count);
+		}
+		
+		// Insert the new tasks
+		int[] added = new int[instance.numTasks - kept];
+		int count = 0;
+		for(int t = 0; t < instance.numTasks; t++) {
+			if(!placed[t])
+				added[count++] = t;
+		}
+		
+		if(!heuristic.insertAll(solution, added, count))
+			return fallback.build(instance, random);
+		
+		changedTasks = removed + count;
+		return solution;
+	}
+	
+	// Return the number of tasks removed or added by the last build, or -1 if it built
+	// the solution from scratch
+	public int getChangedTasks() {
+		return changedTasks;
+	}
+	
+	@Override
+	public String toString() {
+		return "warm start, else " + fallback;
+	}
+	
+	// Return whether two tasks of the same id have the same cities and weight
+	private static boolean sameTask(Task a, Task b) {
+		return a.pickupCity.id == b.pickupCity.id && a.deliveryCity.id == b.deliveryCity.id
+				&& a.weight == b.weight;
+	}
+}
@@ -0,0 +1,58 @@
+package template;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Destroy operator removing the tasks which cost the most, i.e. whose removal saves the
+// most distance in their vehicle. The tasks are ranked once, and the k-th one is drawn
+// as floor(n*u^randomness) for u uniform in [0, 1), so that the most expensive ones are
+// likely to go without the same ones being removed every time.
+public class WorstRemoval implements DestroyOperator {
+	private final double randomness;
+	
+	public WorstRemoval(double randomness) {
+		this.randomness = randomness;
+	}
+	
+	@Override
+	public int destroy(Solution solution, int count, SplittableRandom random, int[] removed) {
+		Instance instance = solution.getInstance();
+		count = Math.min(count, instance.numTasks);
+		
+		// Rank the tasks by decreasing saving of their removal, sorting their keys once
+		RankKeys rankKeys = new RankKeys(instance.numTasks);
+		long[] keys = new long[instance.numTasks];
+		for(int t = 0; t < instance.numTasks; t++) {
+			int vehicle = solution.vehicleOf(t);
+			TaskList taskList = solution.getTaskList(vehicle);
+			double saving = -instance.vehicleCostPerKm[vehicle]*taskList.removalDelta(
+					taskList.indexOf(Instance.pickUp(t)), taskList.indexOf(Instance.delivery(t)));
+			keys[t] = rankKeys.key(-saving, t);
+		}
+		
+		Arrays.sort(keys);
+		int[] ranking = new int[instance.numTasks];
+		for(int k = 0; k < ranking.length; k++) {
+			ranking[k] = rankKeys.index(keys[k]);
+		}
+		
+		// Draw the tasks among the ones left, the ranking being kept in order
+		int left = ranking.length;
+		for(int k = 0; k < count; k++) {
+			int r = (int) (left*Math.pow(random.nextDouble(), randomness));
+			int task = ranking[r];
+			System.arraycopy(ranking, r + 1, ranking, r, left - r - 1);
+			left--;
+			
+			solution.removeTask(task);
+			removed[k] = task;
+		}
+		
+		return count;
+	}
+	
+	@Override
+	public String toString() {
+		return "worst";
+	}
+}
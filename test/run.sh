@@ -0,0 +1,33 @@
+#!/bin/sh
+# Build and run the tests:
+#
+#   LOGIST=<logist jar> test/run.sh [test class]...
+#
+# The classes of src and test are compiled together into test/classes, then each given
+# test class is run, by default every class of test/template whose name ends in Test. A
+# test class is a main method throwing an AssertionError at the first failed check, see
+# Assert, so the script stops at the first failing test class.
+set -e
+
+if [ -z "$LOGIST" ]; then
+	echo "Usage: LOGIST=<logist jar> $0 [test class]..." >&2
+	exit 1
+fi
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+OUT="$ROOT/test/classes"
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+javac -encoding ISO-8859-1 -nowarn -cp "$LOGIST" -d "$OUT" \
+	$(find "$ROOT/src" "$ROOT/test" -name '*.java')
+
+TESTS="$*"
+if [ -z "$TESTS" ]; then
+	TESTS=$(cd "$ROOT/test/template" && ls *Test.java | sed 's/\.java$//')
+fi
+
+for TEST in $TESTS; do
+	java -cp "$OUT:$LOGIST" "template.$TEST"
+	echo "$TEST ok"
+done
@@ -0,0 +1,23 @@
+package template;
+
+// Checks of the tests, each throwing an AssertionError with the given message when it
+// fails
+public class Assert {
+	public static void isTrue(boolean condition, String message) {
+		if(!condition)
+			throw new AssertionError(message);
+	}
+	
+	public static void equal(long expected, long actual, String message) {
+		if(expected != actual)
+			throw new AssertionError(message + ": expected " + expected + ", got " + actual);
+	}
+	
+	// Check that two values are equal up to a relative error of epsilon, values below 1
+	// being compared with an absolute error of epsilon
+	public static void close(double expected, double actual, double epsilon, String message) {
+		double scale = Math.max(1, Math.max(Math.abs(expected), Math.abs(actual)));
+		if(!(Math.abs(expected - actual) <= epsilon*scale))
+			throw new AssertionError(message + ": expected " + expected + ", got " + actual);
+	}
+}
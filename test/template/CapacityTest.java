@@ -0,0 +1,50 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Test of the O(1) capacity checks. For every place of every task not in a list,
+// canInsert must agree with inserting the task in a copy and rescanning it, in one or
+// several dimensions, and lastDeliverOrder must give exactly the delivery orders where
+// the task fits: all the ones up to it and none after, or -1 when it fits nowhere from
+// that pickup order.
+public class CapacityTest {
+	private static final int SEEDS = 50;
+	
+	public static void main(String[] args) {
+		for(long seed = 0; seed < SEEDS; seed++) {
+			test(TestInstances.create(20, 20, 3, 1, 25, seed), seed);
+			test(TestInstances.create(20, 20, 3, 3, 25, seed), seed);
+			test(TestInstances.create(20, 30, 2, 2, 40, seed), seed);
+		}
+	}
+	
+	private static void test(Instance instance, long seed) {
+		Solution solution = TestInstances.randomSolution(instance, new SplittableRandom(seed));
+		
+		for(int v = 0; v < instance.numVehicles; v++) {
+			TaskList taskList = solution.getTaskList(v);
+			
+			for(int t = 0; t < instance.numTasks; t++) {
+				if(solution.vehicleOf(t) == v)
+					continue;
+				
+				for(int i = 0; i <= taskList.size(); i++) {
+					int last = taskList.lastDeliverOrder(t, i);
+					boolean any = false;
+					
+					for(int j = i + 1; j <= taskList.size() + 1; j++) {
+						boolean feasible = TestInstances.isFeasible(taskList, t, i, j);
+						String where = "seed " + seed + ", task " + t + " at " + i + ", " + j + " in vehicle " + v;
+						
+						Assert.isTrue(taskList.canInsert(t, i, j) == feasible, where + ": canInsert is " + !feasible);
+						Assert.isTrue((j <= last) == feasible, where + ": lastDeliverOrder is " + last);
+						any |= feasible;
+					}
+					
+					if(!any)
+						Assert.equal(-1, last, "seed " + seed + ", task " + t + " picked up at " + i + " in vehicle " + v);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Test of the incremental cost. The insertion and removal deltas of a list must be the
+// difference of its recomputed distance, and the cost of a solution, updated from them
+// at each move, must stay the one recomputed by walking every route, for the moves of
+// the SLS, the sampled moves and the removals and insertions of the ALNS, whether the
+// routes are shared with a copy or not.
+public class CostTest {
+	private static final double EPSILON = 1e-9;
+	private static final int SEEDS = 20;
+	private static final int STEPS = 500;
+	
+	public static void main(String[] args) {
+		for(long seed = 0; seed < SEEDS; seed++) {
+			testDeltas(TestInstances.create(20, 15, 3, 1, 25, seed), seed);
+			testDeltas(TestInstances.create(20, 15, 3, 2, 25, seed), seed);
+			testMoves(TestInstances.create(30, 40, 4, 1, 30, seed), seed);
+			testMoves(TestInstances.create(30, 40, 4, 3, 30, seed), seed);
+		}
+	}
+	
+	// Compare insertionDelta and removalDelta with the recomputed distance, for every
+	// place of every task not in a list and every task of it
+	private static void testDeltas(Instance instance, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		Solution solution = TestInstances.randomSolution(instance, random);
+		
+		for(int v = 0; v < instance.numVehicles; v++) {
+			TaskList taskList = solution.getTaskList(v);
+			double distance = taskList.getDistance();
+			Assert.close(distance, taskList.distance, EPSILON, "cached distance of vehicle " + v);
+			
+			for(int t = 0; t < instance.numTasks; t++) {
+				if(solution.vehicleOf(t) == v)
+					continue;
+				
+				for(int i = 0; i <= taskList.size(); i++) {
+					for(int j = i + 1; j <= taskList.size() + 1; j++) {
+						TaskList copy = new TaskList(taskList);
+						copy.insertTask(t, i, j);
+						String where = "insertion of task " + t + " at " + i + ", " + j + " in vehicle " + v;
+						
+						Assert.close(copy.getDistance() - distance, taskList.insertionDelta(t, i, j), EPSILON, where);
+						Assert.close(copy.getDistance(), copy.distance, EPSILON, where);
+					}
+				}
+			}
+			
+			for(int k = 0; k < taskList.size(); k++) {
+				if(!Instance.isPickUp(taskList.action(k)))
+					continue;
+				
+				int t = Instance.taskOf(taskList.action(k));
+				int d = taskList.indexOf(Instance.delivery(t));
+				TaskList copy = new TaskList(taskList);
+				copy.removeTask(t);
+				String where = "removal of task " + t + " at " + k + ", " + d + " from vehicle " + v;
+				
+				Assert.close(copy.getDistance() - distance, taskList.removalDelta(k, d), EPSILON, where);
+				Assert.close(copy.getDistance(), copy.distance, EPSILON, where);
+			}
+		}
+	}
+	
+	// Apply a random sequence of moves, checking after each one that the cost moved by
+	// the announced delta and that it is still the recomputed cost. A copy taken before
+	// each move must keep its own cost.
+	private static void testMoves(Instance instance, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		Solution solution = TestInstances.randomSolution(instance, random);
+		MoveList moves = new MoveList();
+		Assert.close(solution.computeCost(), solution.getCost(), EPSILON, "cost of the initial solution");
+		
+		for(int step = 0; step < STEPS; step++) {
+			Solution copy = random.nextBoolean() ? new Solution(solution) : null;
+			double cost = solution.getCost();
+			String where = "seed " + seed + ", step " + step;
+			
+			switch(random.nextInt(3)) {
+			case 0:
+				// Best or any move of the SLS neighbourhood
+				solution.getNeighbours(random, moves);
+				if(!moves.isEmpty()) {
+					int k = random.nextInt(moves.size());
+					solution.applyMove(moves, k);
+					Assert.close(cost + moves.delta(k), solution.getCost(), EPSILON, where + ", SLS move");
+				}
+				break;
+			case 1:
+				// Move of the sampled search
+				if(solution.sampleMove(random, moves)) {
+					solution.applyMove(moves, 0);
+					Assert.close(cost + moves.delta(0), solution.getCost(), EPSILON, where + ", sampled move");
+				}
+				break;
+			default:
+				// Removal and reinsertion of a few tasks as the ALNS does
+				int count = 1 + random.nextInt(3);
+				int[] removed = new int[count];
+				for(int k = 0; k < count; k++) {
+					do {
+						removed[k] = random.nextInt(instance.numTasks);
+					} while(solution.vehicleOf(removed[k]) < 0);
+					solution.removeTask(removed[k]);
+					Assert.close(solution.computeCost(), solution.getCost(), EPSILON, where + ", removal");
+				}
+				for(int k = 0; k < count; k++) {
+					insertAnywhere(solution, removed[k], random);
+				}
+			}
+			
+			Assert.close(solution.computeCost(), solution.getCost(), EPSILON, where);
+			if(copy != null) {
+				Assert.close(cost, copy.getCost(), EPSILON, where + ", copy");
+				Assert.close(copy.computeCost(), copy.getCost(), EPSILON, where + ", copy");
+			}
+		}
+	}
+	
+	// Insert a task which no vehicle has at a random place allowed by lastDeliverOrder
+	private static void insertAnywhere(Solution solution, int task, SplittableRandom random) {
+		Instance instance = solution.getInstance();
+		
+		while(true) {
+			int v = random.nextInt(instance.numVehicles);
+			TaskList taskList = solution.getTaskList(v);
+			int i = random.nextInt(taskList.size() + 1);
+			int last = taskList.lastDeliverOrder(task, i);
+			if(last <= i)
+				continue;
+			
+			int j = i + 1 + random.nextInt(last - i);
+			double cost = solution.getCost();
+			double delta = instance.vehicleCostPerKm[v]*taskList.insertionDelta(task, i, j);
+			solution.insertTask(task, v, i, j);
+			Assert.close(cost + delta, solution.getCost(), EPSILON, "insertion of task " + task);
+			return;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Test of the incremental Zobrist hash. After every insertion, removal, reversal,
+// segment move and improvement of a list, and after every move of a solution, the
+// kept hash must be the one recomputed from the edges, and removing a task just
+// inserted must give back the hash from before. Solutions with the same routes,
+// copied or rebuilt, must have the same hash.
+public class HashTest {
+	private static final int SEEDS = 20;
+	private static final int STEPS = 300;
+	
+	public static void main(String[] args) {
+		for(long seed = 0; seed < SEEDS; seed++) {
+			testTaskList(TestInstances.create(20, 15, 1, 1, 30, seed), seed);
+			testSolution(TestInstances.create(30, 40, 4, 1, 30, seed), seed);
+			testSolution(TestInstances.create(30, 40, 4, 2, 30, seed), seed);
+		}
+	}
+	
+	private static void testTaskList(Instance instance, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		TaskList taskList = new TaskList(instance, 0);
+		boolean[] in = new boolean[instance.numTasks];
+		Assert.equal(0, taskList.getHash(), "hash of the empty list");
+		
+		for(int step = 0; step < STEPS; step++) {
+			String where = "seed " + seed + ", step " + step;
+			int t = random.nextInt(instance.numTasks);
+			int size = taskList.size();
+			
+			switch(random.nextInt(4)) {
+			case 0:
+				// Insertion, then removal and insertion again
+				if(in[t]) {
+					taskList.removeTask(t);
+					in[t] = false;
+					break;
+				}
+				int i = random.nextInt(size + 1), j = i + 1 + random.nextInt(size + 1 - i);
+				long before = taskList.getHash();
+				taskList.insertTask(t, i, j);
+				Assert.equal(taskList.computeHash(), taskList.getHash(), where + ", insertion");
+				taskList.removeTask(t);
+				Assert.equal(before, taskList.getHash(), where + ", insertion undone");
+				taskList.insertTask(t, i, j);
+				in[t] = true;
+				break;
+			case 1:
+				if(size < 2)
+					break;
+				int a = random.nextInt(size - 1), b = a + 1 + random.nextInt(size - 1 - a);
+				if(taskList.canReverse(a, b))
+					taskList.reverse(a, b);
+				break;
+			case 2:
+				int len = 1 + random.nextInt(3);
+				if(size <= len)
+					break;
+				int from = random.nextInt(size - len + 1), to = random.nextInt(size - len + 1);
+				if(to != from && taskList.canMoveSegment(from, len, to))
+					taskList.moveSegment(from, len, to);
+				break;
+			default:
+				taskList.improve();
+			}
+			
+			Assert.equal(taskList.computeHash(), taskList.getHash(), where);
+		}
+	}
+	
+	private static void testSolution(Instance instance, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		Solution solution = TestInstances.randomSolution(instance, random);
+		MoveList moves = new MoveList();
+		Assert.equal(solution.computeHash(), solution.getHash(), "hash of the initial solution");
+		
+		for(int step = 0; step < STEPS; step++) {
+			Solution copy = new Solution(solution);
+			long hash = solution.getHash();
+			String where = "seed " + seed + ", step " + step;
+			
+			switch(random.nextInt(5)) {
+			case 0:
+				solution.getNeighbours(random, moves);
+				if(!moves.isEmpty())
+					solution.applyMove(moves, random.nextInt(moves.size()));
+				break;
+			case 1:
+				if(solution.sampleMove(random, moves))
+					solution.applyMove(moves, 0);
+				break;
+			case 2:
+				// Removal undone by the insertion at the same place
+				int t = random.nextInt(instance.numTasks);
+				int v = solution.vehicleOf(t);
+				TaskList taskList = solution.getTaskList(v);
+				int i = taskList.indexOf(Instance.pickUp(t)), j = taskList.indexOf(Instance.delivery(t));
+				solution.removeTask(t);
+				Assert.equal(solution.computeHash(), solution.getHash(), where + ", removal");
+				solution.insertTask(t, v, i, j);
+				Assert.equal(hash, solution.getHash(), where + ", removal undone");
+				break;
+			case 3:
+				solution.improveRoute(random.nextInt(instance.numVehicles));
+				break;
+			default:
+				// Route rebuilt from its own actions, with the same hash
+				int vehicle = random.nextInt(instance.numVehicles);
+				TaskList route = solution.getTaskList(vehicle);
+				int[] actions = new int[route.size()];
+				for(int k = 0; k < actions.length; k++) {
+					actions[k] = route.action(k);
+				}
+				solution.putRoute(vehicle, actions, actions.length);
+				Assert.equal(hash, solution.getHash(), where + ", same route put back");
+			}
+			
+			Assert.equal(solution.computeHash(), solution.getHash(), where);
+			Assert.equal(hash, copy.getHash(), where + ", copy");
+			Assert.equal(copy.computeHash(), copy.getHash(), where + ", copy");
+			Assert.equal(solution.getHash(), solution.deepCopy().getHash(), where + ", deep copy");
+		}
+	}
+}
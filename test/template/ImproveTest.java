@@ -0,0 +1,143 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Test of the 2-opt and Or-opt moves of a list. Every reversal and segment move allowed
+// by canReverse and canMoveSegment must keep each pickup before its delivery and the
+// capacity, with the announced difference of distance. improve() must keep a feasible
+// list feasible, time windows included, and return the difference of distance. A move
+// improving the distance but breaking a window must be undone.
+public class ImproveTest {
+	private static final double EPSILON = 1e-9;
+	private static final int SEEDS = 30;
+	
+	public static void main(String[] args) {
+		for(long seed = 0; seed < SEEDS; seed++) {
+			testMoves(TestInstances.create(20, 12, 2, 1, 25, seed), seed);
+			testMoves(TestInstances.create(20, 12, 2, 2, 25, seed), seed);
+			testImprove(TestInstances.create(30, 30, 3, 1, 30, seed), seed);
+			testImprove(TestInstances.create(30, 30, 3, 2, 30, seed), seed);
+			testImprove(TestInstances.create(30, 30, 3, 1, 30, 300, seed), seed);
+		}
+		testUndo();
+	}
+	
+	// Compare every allowed move with the list rebuilt after it
+	private static void testMoves(Instance instance, long seed) {
+		Solution solution = TestInstances.randomSolution(instance, new SplittableRandom(seed));
+		
+		for(int v = 0; v < instance.numVehicles; v++) {
+			TaskList taskList = solution.getTaskList(v);
+			double distance = taskList.getDistance();
+			int size = taskList.size();
+			
+			for(int a = 0; a < size; a++) {
+				for(int b = a + 1; b < size; b++) {
+					if(!taskList.canReverse(a, b))
+						continue;
+					
+					TaskList copy = new TaskList(taskList);
+					copy.reverse(a, b);
+					check(copy, distance + taskList.reversalDelta(a, b),
+							"seed " + seed + ", reversal of " + a + " to " + b + " in vehicle " + v);
+				}
+			}
+			
+			for(int len = 1; len <= 3; len++) {
+				for(int a = 0; a + len <= size; a++) {
+					for(int t = 0; t <= size - len; t++) {
+						if(t == a || !taskList.canMoveSegment(a, len, t))
+							continue;
+						
+						TaskList copy = new TaskList(taskList);
+						copy.moveSegment(a, len, t);
+						check(copy, distance + taskList.segmentMoveDelta(a, len, t),
+								"seed " + seed + ", move of " + len + " from " + a + " to " + t + " in vehicle " + v);
+					}
+				}
+			}
+		}
+	}
+	
+	// Improve every list of a feasible solution
+	private static void testImprove(Instance instance, long seed) {
+		Solution solution = TestInstances.randomSolution(instance, new SplittableRandom(seed));
+		
+		for(int v = 0; v < instance.numVehicles; v++) {
+			TaskList taskList = solution.getTaskList(v);
+			double distance = taskList.getDistance();
+			String where = "seed " + seed + ", improvement of vehicle " + v;
+			
+			double delta = taskList.improve();
+			Assert.isTrue(delta <= 0, where + ": positive difference " + delta);
+			Assert.isTrue(taskList.checkTimes(), where + ": time windows broken");
+			check(taskList, distance + delta, where);
+			Assert.equal(taskList.computeHash(), taskList.getHash(), where + ": hash");
+		}
+	}
+	
+	// Check that a list is feasible without its time windows and has the given distance
+	private static void check(TaskList taskList, double distance, String where) {
+		Assert.isTrue(inOrder(taskList), where + ": delivery before its pickup");
+		Assert.isTrue(taskList.checkWeights(), where + ": capacity broken");
+		Assert.close(taskList.getDistance(), distance, EPSILON, where);
+		Assert.close(taskList.getDistance(), taskList.distance, EPSILON, where + ", cached distance");
+	}
+	
+	// Return whether each task of the list has exactly one pickup and one delivery, in
+	// this order
+	private static boolean inOrder(TaskList taskList) {
+		for(int k = 0; k < taskList.size(); k++) {
+			int action = taskList.action(k);
+			int partner = Instance.isPickUp(action) ? Instance.delivery(Instance.taskOf(action))
+					: Instance.pickUp(Instance.taskOf(action));
+			int p = taskList.indexOf(partner);
+			if(p < 0 || (Instance.isPickUp(action) ? p < k : p > k))
+				return false;
+		}
+		return true;
+	}
+	
+	// On a line, a vehicle starting at 0 serves a task A at 100 then a task B at 10. Doing
+	// B first saves 90, but then A is reached at 110 while its window closes at 100, so
+	// improve() must undo the moves and leave the list as it was, and only take them
+	// without time windows.
+	private static void testUndo() {
+		double[] position = {0, 100, 10};
+		double[] distances = new double[9];
+		for(int i = 0; i < 3; i++) {
+			for(int j = 0; j < 3; j++) {
+				distances[3*i + j] = Math.abs(position[i] - position[j]);
+			}
+		}
+		int[] pickupCity = {1, 2}, deliveryCity = {1, 2};
+		int[][] weights = {{1, 1}}, capacities = {{10}};
+		double[] earliest = {0, 0, 0, 0}, latest = {100, 100, 1000, 1000}, service = {0, 0, 5, 5};
+		
+		for(boolean windows : new boolean[] {true, false}) {
+			Instance instance = new Instance(new DistanceMatrix(3, distances), pickupCity, deliveryCity,
+					weights, new int[] {0}, capacities, new double[] {1}, windows ? earliest : null,
+					windows ? latest : null, windows ? service : null);
+			int[] actions = {Instance.pickUp(0), Instance.delivery(0), Instance.pickUp(1), Instance.delivery(1)};
+			TaskList taskList = new TaskList(instance, 0, actions, actions.length);
+			Assert.close(190, taskList.distance, EPSILON, "distance of the line route");
+			Assert.isTrue(taskList.checkTimes(), "line route infeasible");
+			long hash = taskList.getHash();
+			
+			double delta = taskList.improve();
+			if(windows) {
+				Assert.close(0, delta, EPSILON, "improvement breaking a window");
+				for(int k = 0; k < actions.length; k++) {
+					Assert.equal(actions[k], taskList.action(k), "action " + k + " after the undone moves");
+				}
+				Assert.equal(hash, taskList.getHash(), "hash after the undone moves");
+			}
+			else {
+				Assert.close(-90, delta, EPSILON, "improvement without windows");
+				Assert.equal(Instance.pickUp(1), taskList.action(0), "first action without windows");
+			}
+			check(taskList, 190 + delta, "line route");
+			Assert.equal(taskList.computeHash(), taskList.getHash(), "hash of the line route");
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package template;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Test of the ranking of the destroy operators. The keys of RankKeys must be ordered as
+// their values and give back their index, and select must put the key of each rank
+// where a sort would. With a huge randomness the operators always draw the first rank,
+// so WorstRemoval must remove the tasks by decreasing saving and ShawRemoval the task
+// most related to the first one second, and both must remove distinct tasks.
+public class RemovalTest {
+	private static final int SEEDS = 50;
+	private static final double GREEDY = 1e9; // Randomness drawing the first rank
+	
+	public static void main(String[] args) {
+		for(long seed = 0; seed < SEEDS; seed++) {
+			SplittableRandom random = new SplittableRandom(seed);
+			testKeys(1 + random.nextInt(300), random);
+			
+			Instance instance = TestInstances.create(25, 30, 3, 1, 40, seed);
+			testWorst(instance, random);
+			testShaw(instance, random);
+			testDistinct(instance, new WorstRemoval(3), random);
+			testDistinct(instance, new ShawRemoval(3), random);
+		}
+	}
+	
+	private static void testKeys(int n, SplittableRandom random) {
+		RankKeys rankKeys = new RankKeys(n);
+		double[] values = new double[n];
+		long[] keys = new long[n];
+		for(int i = 0; i < n; i++) {
+			// Negative, positive and equal values
+			values[i] = random.nextInt(4) == 0 ? values[random.nextInt(i + 1)] : (random.nextDouble() - 0.5)*1000;
+			keys[i] = rankKeys.key(values[i], i);
+			Assert.equal(i, rankKeys.index(keys[i]), "index of key " + i);
+		}
+		
+		for(int i = 0; i < n; i++) {
+			for(int j = 0; j < n; j++) {
+				if(values[i] < values[j])
+					Assert.isTrue(keys[i] < keys[j], "order of the keys " + i + " and " + j);
+			}
+		}
+		
+		long[] sorted = keys.clone();
+		Arrays.sort(sorted);
+		for(int trial = 0; trial < 10; trial++) {
+			long[] selected = keys.clone();
+			int r = random.nextInt(n);
+			RankKeys.select(selected, n, r, random);
+			Assert.equal(sorted[r], selected[r], "key of rank " + r + " of " + n);
+			for(int i = 0; i < n; i++) {
+				Assert.isTrue(i < r ? selected[i] < selected[r] : selected[i] >= selected[r],
+						"key " + i + " around rank " + r + " of " + n);
+			}
+		}
+	}
+	
+	private static void testWorst(Instance instance, SplittableRandom random) {
+		Solution solution = TestInstances.randomSolution(instance, random);
+		int count = 1 + random.nextInt(instance.numTasks);
+		double[] saving = new double[instance.numTasks];
+		for(int t = 0; t < instance.numTasks; t++) {
+			int v = solution.vehicleOf(t);
+			TaskList taskList = solution.getTaskList(v);
+			saving[t] = -instance.vehicleCostPerKm[v]*taskList.removalDelta(
+					taskList.indexOf(Instance.pickUp(t)), taskList.indexOf(Instance.delivery(t)));
+		}
+		
+		int[] removed = new int[count];
+		new WorstRemoval(GREEDY).destroy(solution, count, random, removed);
+		for(int k = 1; k < count; k++) {
+			Assert.isTrue(saving[removed[k - 1]] >= saving[removed[k]], "saving of the removed task " + k);
+		}
+		for(int t = 0; t < instance.numTasks; t++) {
+			if(solution.vehicleOf(t) >= 0)
+				Assert.isTrue(saving[t] <= saving[removed[count - 1]], "saving of the kept task " + t);
+		}
+	}
+	
+	private static void testShaw(Instance instance, SplittableRandom random) {
+		Solution solution = TestInstances.randomSolution(instance, random);
+		int[] removed = new int[2];
+		new ShawRemoval(GREEDY).destroy(solution, 2, random, removed);
+		
+		double best = relatedness(instance, removed[0], removed[1]);
+		for(int t = 0; t < instance.numTasks; t++) {
+			if(t != removed[0])
+				Assert.isTrue(best <= relatedness(instance, removed[0], t), "relatedness of task " + t);
+		}
+	}
+	
+	private static void testDistinct(Instance instance, DestroyOperator operator, SplittableRandom random) {
+		Solution solution = TestInstances.randomSolution(instance, random);
+		int count = 1 + random.nextInt(instance.numTasks);
+		int[] removed = new int[count];
+		Assert.equal(count, operator.destroy(solution, count, random, removed), operator + " count");
+		
+		boolean[] seen = new boolean[instance.numTasks];
+		for(int k = 0; k < count; k++) {
+			Assert.isTrue(!seen[removed[k]], operator + " removed task " + removed[k] + " twice");
+			Assert.isTrue(solution.vehicleOf(removed[k]) < 0, operator + " left task " + removed[k]);
+			seen[removed[k]] = true;
+		}
+	}
+	
+	private static double relatedness(Instance instance, int a, int b) {
+		return instance.distances.get(instance.actionCity[Instance.pickUp(a)], instance.actionCity[Instance.pickUp(b)])
+				+ instance.distances.get(instance.actionCity[Instance.delivery(a)], instance.actionCity[Instance.delivery(b)]);
+	}
+}
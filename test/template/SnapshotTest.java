@@ -0,0 +1,215 @@
+package template;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.SplittableRandom;
+
+// Test of the snapshots. An instance and a solution written then read back must be the
+// same, down to the fingerprint, the actions and the cost. A snapshot with a corrupted
+// header, a truncated one, a solution of another instance, one delivering a task before
+// picking it up and one missing a task must all be rejected with an IOException.
+public class SnapshotTest {
+	private static final double EPSILON = 1e-9;
+	private static final int SEEDS = 10;
+	
+	public static void main(String[] args) throws IOException {
+		File instanceFile = File.createTempFile("instance", ".snapshot");
+		File solutionFile = File.createTempFile("solution", ".snapshot");
+		
+		try {
+			for(long seed = 0; seed < SEEDS; seed++) {
+				testRoundTrip(TestInstances.create(20, 15, 3, 1, 30, seed), instanceFile, solutionFile, seed);
+				testRoundTrip(TestInstances.create(20, 15, 3, 2, 30, 300, seed), instanceFile, solutionFile, seed);
+			}
+			
+			Instance instance = TestInstances.create(20, 15, 3, 1, 30, 0);
+			testCorruptedInstance(instance, instanceFile);
+			testInvalidSolution(instance, solutionFile);
+		}
+		finally {
+			instanceFile.delete();
+			solutionFile.delete();
+		}
+	}
+	
+	private static void testRoundTrip(Instance instance, File instanceFile, File solutionFile, long seed)
+			throws IOException {
+		Snapshot.writeInstance(instance, instanceFile);
+		Assert.isTrue(Snapshot.isInstance(instanceFile), "instance snapshot not recognized");
+		Instance read = Snapshot.readInstance(instanceFile);
+		String where = "seed " + seed;
+		
+		Assert.equal(Snapshot.fingerprint(instance), Snapshot.fingerprint(read), where + ", fingerprint");
+		Assert.equal(instance.distances.numCities, read.distances.numCities, where + ", cities");
+		for(int i = 0; i < instance.distances.numCities; i++) {
+			for(int j = 0; j < instance.distances.numCities; j++) {
+				Assert.isTrue(instance.distances.get(i, j) == read.distances.get(i, j), where + ", distance " + i + ", " + j);
+			}
+		}
+		Assert.equal(instance.numTasks, read.numTasks, where + ", tasks");
+		Assert.equal(instance.numDimensions, read.numDimensions, where + ", dimensions");
+		Assert.isTrue(instance.hasTimeWindows == read.hasTimeWindows, where + ", time windows");
+		for(int a = 0; a < 2*instance.numTasks; a++) {
+			Assert.equal(instance.actionCity[a], read.actionCity[a], where + ", city of action " + a);
+			for(int d = 0; d < instance.numDimensions; d++) {
+				Assert.equal(instance.actionLoads[d][a], read.actionLoads[d][a], where + ", load of action " + a);
+			}
+			if(instance.hasTimeWindows) {
+				Assert.isTrue(instance.actionEarliest[a] == read.actionEarliest[a]
+						&& instance.actionLatest[a] == read.actionLatest[a]
+						&& instance.actionService[a] == read.actionService[a], where + ", window of action " + a);
+			}
+		}
+		Assert.equal(instance.numVehicles, read.numVehicles, where + ", vehicles");
+		for(int v = 0; v < instance.numVehicles; v++) {
+			Assert.equal(instance.vehicleStart[v], read.vehicleStart[v], where + ", start of vehicle " + v);
+			Assert.isTrue(instance.vehicleCostPerKm[v] == read.vehicleCostPerKm[v], where + ", cost of vehicle " + v);
+			for(int d = 0; d < instance.numDimensions; d++) {
+				Assert.equal(instance.vehicleCapacities[d][v], read.vehicleCapacities[d][v],
+						where + ", capacity of vehicle " + v);
+			}
+		}
+		
+		// Only a solution with every task can be written and read back
+		Solution solution = TestInstances.randomSolution(instance, new SplittableRandom(seed));
+		for(int t = 0; t < instance.numTasks; t++) {
+			if(solution.vehicleOf(t) < 0)
+				return;
+		}
+		
+		Snapshot.writeSolution(solution, solutionFile);
+		Assert.isTrue(!Snapshot.isInstance(solutionFile), "solution snapshot taken for an instance");
+		Solution readSolution = Snapshot.readSolution(solutionFile, read);
+		for(int v = 0; v < instance.numVehicles; v++) {
+			TaskList route = solution.getTaskList(v), readRoute = readSolution.getTaskList(v);
+			Assert.equal(route.size(), readRoute.size(), where + ", actions of vehicle " + v);
+			for(int k = 0; k < route.size(); k++) {
+				Assert.equal(route.action(k), readRoute.action(k), where + ", action " + k + " of vehicle " + v);
+			}
+		}
+		Assert.close(solution.getCost(), readSolution.getCost(), EPSILON, where + ", cost");
+		Assert.close(readSolution.computeCost(), readSolution.getCost(), EPSILON, where + ", cost");
+		Assert.equal(solution.getHash(), readSolution.getHash(), where + ", hash");
+	}
+	
+	private static void testCorruptedInstance(Instance instance, File file) throws IOException {
+		// Header: magic, version, cities, tasks, vehicles, dimensions, time windows
+		int[][] corruptions = {{0, 0}, {1, 99}, {2, 0}, {2, 1 << 30}, {3, -1}, {3, Integer.MAX_VALUE},
+				{4, Integer.MAX_VALUE}, {5, 0}, {5, 2}, {6, 1}};
+		
+		for(int[] corruption : corruptions) {
+			Snapshot.writeInstance(instance, file);
+			putInt(file, 4*corruption[0], corruption[1]);
+			Assert.isTrue(rejectsInstance(file), "header field " + corruption[0] + " set to " + corruption[1]);
+		}
+		
+		Snapshot.writeInstance(instance, file);
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(raf.length() - 4);
+		}
+		finally {
+			raf.close();
+		}
+		Assert.isTrue(rejectsInstance(file), "truncated instance");
+	}
+	
+	private static void testInvalidSolution(Instance instance, File file) throws IOException {
+		long fingerprint = Snapshot.fingerprint(instance);
+		int n = instance.numTasks;
+		
+		// Every task in order on the first vehicle, which is feasible
+		int[] actions = new int[2*n];
+		for(int t = 0; t < n; t++) {
+			actions[2*t] = Instance.pickUp(t);
+			actions[2*t + 1] = Instance.delivery(t);
+		}
+		writeSolution(file, fingerprint, n, instance.numVehicles, actions, 2*n);
+		Assert.equal(0, Snapshot.readSolution(file, instance).getTaskList(1).size(), "valid solution");
+		
+		// Delivery before its pickup
+		actions[0] = Instance.delivery(0);
+		actions[1] = Instance.pickUp(0);
+		writeSolution(file, fingerprint, n, instance.numVehicles, actions, 2*n);
+		Assert.isTrue(rejectsSolution(file, instance), "delivery before its pickup");
+		actions[0] = Instance.pickUp(0);
+		actions[1] = Instance.delivery(0);
+		
+		// Task missing
+		writeSolution(file, fingerprint, n, instance.numVehicles, actions, 2*n - 2);
+		Assert.isTrue(rejectsSolution(file, instance), "missing task");
+		
+		// Another instance
+		writeSolution(file, fingerprint + 1, n, instance.numVehicles, actions, 2*n);
+		Assert.isTrue(rejectsSolution(file, instance), "solution of another fingerprint");
+		writeSolution(file, fingerprint, n, instance.numVehicles, actions, 2*n);
+		Assert.isTrue(rejectsSolution(file, TestInstances.create(20, 15, 3, 1, 30, 1)), "solution of another instance");
+		
+		// Corrupted header
+		writeSolution(file, fingerprint, n, instance.numVehicles, actions, 2*n);
+		putInt(file, 0, 0);
+		Assert.isTrue(rejectsSolution(file, instance), "solution with a corrupted magic");
+	}
+	
+	// Write a solution snapshot by hand with the given actions all on the first vehicle
+	private static void writeSolution(File file, long fingerprint, int numTasks, int numVehicles,
+			int[] actions, int count) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4*4 + 8 + 4*numVehicles + 4*count).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(0x53504450); // "PDPS"
+		buffer.putInt(1); // Version
+		buffer.putLong(fingerprint);
+		buffer.putInt(numTasks);
+		buffer.putInt(numVehicles);
+		buffer.putInt(count);
+		for(int k = 0; k < count; k++) {
+			buffer.putInt(actions[k]);
+		}
+		for(int v = 1; v < numVehicles; v++) {
+			buffer.putInt(0);
+		}
+		
+		file.delete();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.write(buffer.array());
+		}
+		finally {
+			raf.close();
+		}
+	}
+	
+	// Overwrite the little-endian int at the given offset of a file
+	private static void putInt(File file, long offset, int value) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(offset);
+			raf.writeInt(Integer.reverseBytes(value));
+		}
+		finally {
+			raf.close();
+		}
+	}
+	
+	private static boolean rejectsInstance(File file) {
+		try {
+			Snapshot.readInstance(file);
+			return false;
+		}
+		catch(IOException exc) {
+			return true;
+		}
+	}
+	
+	private static boolean rejectsSolution(File file, Instance instance) {
+		try {
+			Snapshot.readSolution(file, instance);
+			return false;
+		}
+		catch(IOException exc) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Test of the tabu list. A move must stay tabu for exactly tenure iterations, be tabu
+// again when added anew, and never be confused with another move, even with the
+// largest attributes the constructor accepts or once the table has grown and been
+// rebuilt. The constructor must reject the instances whose moves don't fit in a key.
+public class TabuListTest {
+	private static final int MAX_TASKS = (1 << 15) - 1; // Pickup orders up to 2^16 - 2
+	private static final int MAX_VEHICLES = 1 << 12;
+	
+	public static void main(String[] args) {
+		testExpiry();
+		testBoundaries();
+		testGrowth();
+		testConstructor();
+	}
+	
+	private static void testExpiry() {
+		int tenure = 5;
+		TabuList tabu = new TabuList(tenure, 10, 2);
+		tabu.add(3, 0, 1, 4);
+		
+		for(int i = 0; i < tenure; i++) {
+			Assert.isTrue(tabu.isTabu(3, 0, 1, 4), "move tabu after " + i + " iterations");
+			tabu.tick();
+		}
+		Assert.isTrue(!tabu.isTabu(3, 0, 1, 4), "move still tabu after the tenure");
+		
+		// The expired entry is reused
+		tabu.add(3, 0, 1, 4);
+		Assert.isTrue(tabu.isTabu(3, 0, 1, 4), "move added again not tabu");
+		tabu.tick();
+		tabu.add(3, 0, 1, 4);
+		for(int i = 0; i < tenure; i++) {
+			tabu.tick();
+		}
+		Assert.isTrue(!tabu.isTabu(3, 0, 1, 4), "renewed move tabu after its last tenure");
+	}
+	
+	// A move with extreme attributes, alone in its list, must only match itself
+	private static void testBoundaries() {
+		int[][] values = {{0, 1, MAX_TASKS - 1}, {0, 1, MAX_VEHICLES - 1}, {0, 1, MAX_VEHICLES - 1},
+				{0, 1, 2*MAX_TASKS}};
+		int count = 81; // Number of combinations of the values
+		
+		for(int m = 0; m < count; m++) {
+			int[] move = combination(values, m);
+			TabuList tabu = new TabuList(1, MAX_TASKS, MAX_VEHICLES);
+			tabu.add(move[0], move[1], move[2], move[3]);
+			
+			for(int other = 0; other < count; other++) {
+				int[] o = combination(values, other);
+				Assert.isTrue(tabu.isTabu(o[0], o[1], o[2], o[3]) == (other == m),
+						"move " + other + " tabu after adding move " + m);
+			}
+		}
+	}
+	
+	// Return the m-th combination of the given values of the task, the two vehicles and
+	// the pickup order
+	private static int[] combination(int[][] values, int m) {
+		int[] move = new int[values.length];
+		for(int i = values.length - 1; i >= 0; i--) {
+			move[i] = values[i][m % values[i].length];
+			m /= values[i].length;
+		}
+		return move;
+	}
+	
+	// Add many random moves, growing the table, with a reference of the iteration each
+	// one expires
+	private static void testGrowth() {
+		int numTasks = 50, numVehicles = 4, tenure = 30;
+		int orders = 2*numTasks + 1;
+		TabuList tabu = new TabuList(tenure, numTasks, numVehicles);
+		long[] expiry = new long[numTasks*numVehicles*numVehicles*orders];
+		SplittableRandom random = new SplittableRandom(1);
+		
+		for(long iter = 0; iter < 2000; iter++) {
+			for(int k = 0; k < 20; k++) {
+				int t = random.nextInt(numTasks), from = random.nextInt(numVehicles);
+				int to = random.nextInt(numVehicles), order = random.nextInt(orders);
+				tabu.add(t, from, to, order);
+				expiry[((t*numVehicles + from)*numVehicles + to)*orders + order] = iter + tenure;
+			}
+			for(int k = 0; k < 50; k++) {
+				int t = random.nextInt(numTasks), from = random.nextInt(numVehicles);
+				int to = random.nextInt(numVehicles), order = random.nextInt(orders);
+				boolean tabuMove = expiry[((t*numVehicles + from)*numVehicles + to)*orders + order] > iter;
+				Assert.isTrue(tabu.isTabu(t, from, to, order) == tabuMove, "move " + t + ", " + from + ", " + to
+						+ ", " + order + " at iteration " + iter);
+			}
+			tabu.tick();
+		}
+	}
+	
+	private static void testConstructor() {
+		new TabuList(1, MAX_TASKS, MAX_VEHICLES);
+		Assert.isTrue(rejects(MAX_TASKS + 1, 1), "too many tasks accepted");
+		Assert.isTrue(rejects(1 << 24, 1), "tasks beyond 24 bits accepted");
+		Assert.isTrue(rejects(1, MAX_VEHICLES + 1), "too many vehicles accepted");
+	}
+	
+	private static boolean rejects(int numTasks, int numVehicles) {
+		try {
+			new TabuList(1, numTasks, numVehicles);
+			return false;
+		}
+		catch(IllegalArgumentException exc) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Random instances and solutions of the tests, built without any topology. The cities
+// are spread uniformly on a square with euclidean distances, the tasks have a size
+// between 1 and MAX_WEIGHT in each capacity dimension, and every vehicle has the same
+// capacity in each of them.
+public class TestInstances {
+	public static final int MAX_WEIGHT = 10;
+	private static final int SIZE = 1000; // Side of the square the cities are spread on
+	private static final double MAX_SERVICE = 20;
+	
+	// Create an instance without time windows
+	public static Instance create(int numCities, int numTasks, int numVehicles, int numDimensions,
+			int capacity, long seed) {
+		return create(numCities, numTasks, numVehicles, numDimensions, capacity, 0, seed);
+	}
+	
+	// Create an instance with time windows of the given width, or none if it is 0. The
+	// pickups open at random over the time a vehicle would take to do its share of the
+	// tasks one by one, and each delivery opens with its pickup and closes the width
+	// after the latest arrival from the pickup, so that the narrow windows make most
+	// insertions infeasible without making every task impossible to serve.
+	public static Instance create(int numCities, int numTasks, int numVehicles, int numDimensions,
+			int capacity, double window, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		
+		// Cities and the distance between each pair of them
+		double[] x = new double[numCities], y = new double[numCities];
+		for(int c = 0; c < numCities; c++) {
+			x[c] = random.nextDouble()*SIZE;
+			y[c] = random.nextDouble()*SIZE;
+		}
+		double[] distances = new double[numCities*numCities];
+		for(int i = 0; i < numCities; i++) {
+			for(int j = 0; j < numCities; j++) {
+				distances[i*numCities + j] = Math.hypot(x[i] - x[j], y[i] - y[j]);
+			}
+		}
+		
+		// Tasks between two different cities
+		int[] pickupCity = new int[numTasks], deliveryCity = new int[numTasks];
+		int[][] weights = new int[numDimensions][numTasks];
+		for(int t = 0; t < numTasks; t++) {
+			pickupCity[t] = random.nextInt(numCities);
+			deliveryCity[t] = (pickupCity[t] + 1 + random.nextInt(numCities - 1)) % numCities;
+			for(int d = 0; d < numDimensions; d++) {
+				weights[d][t] = 1 + random.nextInt(MAX_WEIGHT);
+			}
+		}
+		
+		// Vehicles starting in random cities
+		int[] vehicleStart = new int[numVehicles];
+		int[][] capacities = new int[numDimensions][numVehicles];
+		double[] costPerKm = new double[numVehicles];
+		for(int v = 0; v < numVehicles; v++) {
+			vehicleStart[v] = random.nextInt(numCities);
+			costPerKm[v] = 1 + random.nextInt(5);
+			for(int d = 0; d < numDimensions; d++) {
+				capacities[d][v] = capacity;
+			}
+		}
+		
+		double[] earliest = null, latest = null, service = null;
+		if(window > 0) {
+			double horizon = SIZE*Math.max(1, numTasks/numVehicles);
+			earliest = new double[2*numTasks];
+			latest = new double[2*numTasks];
+			service = new double[2*numTasks];
+			
+			for(int t = 0; t < numTasks; t++) {
+				int p = Instance.pickUp(t), d = Instance.delivery(t);
+				earliest[p] = random.nextDouble()*horizon;
+				latest[p] = earliest[p] + window;
+				service[p] = random.nextDouble()*MAX_SERVICE;
+				earliest[d] = earliest[p];
+				latest[d] = latest[p] + service[p] + distances[pickupCity[t]*numCities + deliveryCity[t]] + window;
+				service[d] = random.nextDouble()*MAX_SERVICE;
+			}
+		}
+		
+		return new Instance(new DistanceMatrix(numCities, distances), pickupCity, deliveryCity,
+				weights, vehicleStart, capacities, costPerKm, earliest, latest, service);
+	}
+	
+	// Return a solution where each task is inserted in turn at a random place where the
+	// route stays feasible, found by checking every place of every vehicle with the full
+	// rescans of TaskList. The tasks which fit nowhere are left to no vehicle.
+	public static Solution randomSolution(Instance instance, SplittableRandom random) {
+		Solution solution = new Solution(instance);
+		
+		for(int t = 0; t < instance.numTasks; t++) {
+			int count = 0, vehicle = -1, pickUpOrder = -1, deliverOrder = -1;
+			
+			for(int v = 0; v < instance.numVehicles; v++) {
+				TaskList taskList = solution.getTaskList(v);
+				for(int i = 0; i <= taskList.size(); i++) {
+					for(int j = i + 1; j <= taskList.size() + 1; j++) {
+						if(isFeasible(taskList, t, i, j) && random.nextInt(++count) == 0) {
+							vehicle = v;
+							pickUpOrder = i;
+							deliverOrder = j;
+						}
+					}
+				}
+			}
+			
+			if(count > 0)
+				solution.insertTask(t, vehicle, pickUpOrder, deliverOrder);
+		}
+		
+		return solution;
+	}
+	
+	// Return whether inserting the given task at the given orders keeps the list feasible
+	// with the capacity and the time windows, inserting it in a copy and rescanning it
+	public static boolean isFeasible(TaskList taskList, int task, int pickUpOrder, int deliverOrder) {
+		TaskList copy = new TaskList(taskList);
+		copy.insertTask(task, pickUpOrder, deliverOrder);
+		
+		return copy.checkWeights() && copy.checkTimes();
+	}
+}
@@ -0,0 +1,61 @@
+package template;
+
+import java.util.SplittableRandom;
+
+// Test of the O(1) time window checks. On instances with tight windows, for every place
+// of every task not in a list, canInsert and lastDeliverOrder followed by canDeliverAt
+// must agree with inserting the task in a copy and rescanning it. The pickup at the
+// start of the list and the delivery at its end must be met both feasible and not.
+public class TimeWindowTest {
+	private static final int SEEDS = 50;
+	
+	// Number of feasible and infeasible places met with the pickup first, and with the
+	// delivery last
+	private static final int[] firstPickUps = new int[2], lastDeliveries = new int[2];
+	
+	public static void main(String[] args) {
+		for(long seed = 0; seed < SEEDS; seed++) {
+			test(TestInstances.create(20, 20, 2, 1, 40, 100, seed), seed);
+			test(TestInstances.create(20, 20, 2, 1, 40, 300, seed), seed);
+			test(TestInstances.create(20, 20, 2, 2, 20, 300, seed), seed);
+		}
+		
+		for(int k = 0; k < 2; k++) {
+			Assert.isTrue(firstPickUps[k] > 0, "no " + (k == 0 ? "in" : "") + "feasible pickup first");
+			Assert.isTrue(lastDeliveries[k] > 0, "no " + (k == 0 ? "in" : "") + "feasible delivery last");
+		}
+	}
+	
+	private static void test(Instance instance, long seed) {
+		Solution solution = TestInstances.randomSolution(instance, new SplittableRandom(seed));
+		
+		for(int v = 0; v < instance.numVehicles; v++) {
+			TaskList taskList = solution.getTaskList(v);
+			Assert.isTrue(taskList.checkTimes(), "seed " + seed + ", vehicle " + v + " infeasible");
+			
+			for(int t = 0; t < instance.numTasks; t++) {
+				if(solution.vehicleOf(t) == v)
+					continue;
+				
+				for(int i = 0; i <= taskList.size(); i++) {
+					int last = taskList.lastDeliverOrder(t, i);
+					
+					for(int j = i + 1; j <= taskList.size() + 1; j++) {
+						boolean feasible = TestInstances.isFeasible(taskList, t, i, j);
+						String where = "seed " + seed + ", task " + t + " at " + i + ", " + j + " in vehicle " + v;
+						
+						Assert.isTrue(taskList.canInsert(t, i, j) == feasible, where + ": canInsert is " + !feasible);
+						boolean deliverable = j <= last && taskList.canDeliverAt(t, i, j);
+						Assert.isTrue(deliverable == feasible, where + ": lastDeliverOrder is " + last
+								+ ", canDeliverAt is " + deliverable);
+						
+						if(i == 0)
+							firstPickUps[feasible ? 1 : 0]++;
+						if(j == taskList.size() + 1)
+							lastDeliveries[feasible ? 1 : 0]++;
+					}
+				}
+			}
+		}
+	}
+}